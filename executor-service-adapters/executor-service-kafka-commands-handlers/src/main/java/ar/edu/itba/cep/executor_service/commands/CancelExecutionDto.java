@@ -0,0 +1,29 @@
+package ar.edu.itba.cep.executor_service.commands;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/**
+ * Data transfer object for the cancel execution command.
+ */
+@Getter
+public class CancelExecutionDto {
+
+    /**
+     * The id of the message that carried the execution request to be cancelled.
+     */
+    private final String executionId;
+
+
+    /**
+     * Constructor.
+     *
+     * @param executionId The id of the message that carried the execution request to be cancelled.
+     */
+    @JsonCreator
+    public CancelExecutionDto(@JsonProperty(value = "executionId", access = JsonProperty.Access.WRITE_ONLY)
+                              final String executionId) {
+        this.executionId = executionId;
+    }
+}
@@ -0,0 +1,46 @@
+package ar.edu.itba.cep.executor_service.commands;
+
+import com.bellotapps.the_messenger.commons.Message;
+import com.bellotapps.the_messenger.commons.payload.PayloadDeserializer;
+import com.bellotapps.the_messenger.consumer.DeserializerMessageHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Handles cancel execution commands, cancelling the referenced execution request.
+ * Implemented as a {@link DeserializerMessageHandler} of {@link CancelExecutionDto}.
+ * Cancel execution commands must be sent through the control topic (see {@link CommandsRouting#getControlTopic()}),
+ * which is broadcast to all nodes, so the one handling the referenced request receives them while it runs.
+ * They are not accepted through the command topics (see {@link KafkaCommandMessagesDispatcher}).
+ */
+@Component
+public class CancelExecutionHandler extends DeserializerMessageHandler<CancelExecutionDto> {
+
+    /**
+     * The {@link ExecutionCancellations} in charge of cancelling executions.
+     */
+    private final ExecutionCancellations executionCancellations;
+
+
+    /**
+     * Constructor.
+     *
+     * @param cancelExecutionDtoDeserializer A {@link PayloadDeserializer} of {@link CancelExecutionDto}.
+     * @param executionCancellations         The {@link ExecutionCancellations} in charge of cancelling executions.
+     */
+    @Autowired
+    public CancelExecutionHandler(
+            final PayloadDeserializer<CancelExecutionDto> cancelExecutionDtoDeserializer,
+            final ExecutionCancellations executionCancellations) {
+        super(cancelExecutionDtoDeserializer);
+        this.executionCancellations = executionCancellations;
+    }
+
+
+    @Override
+    protected void andThen(final CancelExecutionDto cancelExecutionDto, final Message message) {
+        Optional.ofNullable(cancelExecutionDto.getExecutionId()).ifPresent(executionCancellations::cancel);
+    }
+}
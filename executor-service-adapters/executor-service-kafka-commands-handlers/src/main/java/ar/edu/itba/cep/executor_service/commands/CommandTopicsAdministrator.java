@@ -0,0 +1,245 @@
+package ar.edu.itba.cep.executor_service.commands;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Administers the topics through which commands are received.
+ * It creates the missing topics when the node starts, and periodically samples the lag of each subscribed topic
+ * in its consumer group (i.e the amount of commands not consumed yet),
+ * which allows autoscaling each pool of nodes separately.
+ */
+public class CommandTopicsAdministrator implements InitializingBean, DisposableBean {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(CommandTopicsAdministrator.class);
+
+
+    /**
+     * The {@link CommandsRouting} that defines the topics.
+     */
+    private final CommandsRouting commandsRouting;
+    /**
+     * Indicates whether the topics must be created (if they do not exist).
+     */
+    private final boolean createTopics;
+    /**
+     * The amount of partitions of the created topics.
+     */
+    private final int partitions;
+    /**
+     * The replication factor of the created topics.
+     */
+    private final short replicationFactor;
+    /**
+     * Time (in milliseconds) between samples of the lag.
+     */
+    private final long lagSampleInterval;
+    /**
+     * The {@link KafkaAdmin} that holds the configuration used to create the {@link AdminClient}.
+     */
+    private final KafkaAdmin kafkaAdmin;
+    /**
+     * The {@link ConsumerFactory} used to create the {@link Consumer} that reads the end offsets of the topics.
+     */
+    private final ConsumerFactory<?, ?> consumerFactory;
+    /**
+     * The {@link MeterRegistry} in which metrics are registered.
+     */
+    private final MeterRegistry meterRegistry;
+    /**
+     * The {@link ScheduledExecutorService} that periodically samples the lag.
+     */
+    private final ScheduledExecutorService scheduler;
+    /**
+     * The last sampled lag of each subscribed topic.
+     */
+    private final Map<String, Double> lags;
+
+    /**
+     * The {@link AdminClient} used to create the topics and read the committed offsets.
+     */
+    private AdminClient adminClient;
+    /**
+     * The {@link Consumer} used to read the end offsets of the topics (only used by the scheduler thread).
+     */
+    private Consumer<?, ?> consumer;
+
+
+    /**
+     * Constructor.
+     *
+     * @param commandsRouting   The {@link CommandsRouting} that defines the topics.
+     * @param createTopics      Indicates whether the topics must be created (if they do not exist).
+     * @param partitions        The amount of partitions of the created topics.
+     * @param replicationFactor The replication factor of the created topics.
+     * @param lagSampleInterval Time (in milliseconds) between samples of the lag.
+     * @param kafkaAdmin        The {@link KafkaAdmin} that holds the configuration
+     *                          used to create the {@link AdminClient}.
+     * @param consumerFactory   The {@link ConsumerFactory} used to create the {@link Consumer}
+     *                          that reads the end offsets of the topics.
+     * @param meterRegistry     The {@link MeterRegistry} in which metrics are registered.
+     */
+    public CommandTopicsAdministrator(
+            final CommandsRouting commandsRouting,
+            final boolean createTopics,
+            final int partitions,
+            final short replicationFactor,
+            final long lagSampleInterval,
+            final KafkaAdmin kafkaAdmin,
+            final ConsumerFactory<?, ?> consumerFactory,
+            final MeterRegistry meterRegistry) {
+        Assert.isTrue(partitions > 0, "The amount of partitions must be positive");
+        Assert.isTrue(replicationFactor > 0, "The replication factor must be positive");
+        Assert.isTrue(lagSampleInterval > 0, "The lag sample interval must be positive");
+        this.commandsRouting = commandsRouting;
+        this.createTopics = createTopics;
+        this.partitions = partitions;
+        this.replicationFactor = replicationFactor;
+        this.lagSampleInterval = lagSampleInterval;
+        this.kafkaAdmin = kafkaAdmin;
+        this.consumerFactory = consumerFactory;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "command-topics-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lags = new ConcurrentHashMap<>();
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        this.adminClient = AdminClient.create(kafkaAdmin.getConfig());
+        if (createTopics) {
+            final var topics = new ArrayList<>(commandsRouting.getSubscribedTopics());
+            topics.add(commandsRouting.getControlTopic());
+            createMissingTopics(topics);
+        }
+        commandsRouting.getSubscribedTopics().forEach(topic -> {
+            lags.put(topic, Double.NaN);
+            Gauge.builder("executor.commands.lag", lags, map -> map.getOrDefault(topic, Double.NaN))
+                    .description("Commands not consumed yet by the topic's consumer group")
+                    .tag("topic", topic)
+                    .register(meterRegistry);
+        });
+        scheduler.scheduleWithFixedDelay(this::sampleLag, 0, lagSampleInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(lagSampleInterval, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (consumer != null) {
+            consumer.close();
+        }
+        adminClient.close();
+    }
+
+
+    /**
+     * Creates the given {@code topics} that do not exist.
+     * Errors are logged (instead of thrown), as topics might be created by other means (e.g by the broker).
+     *
+     * @param topics The topics to be created.
+     */
+    private void createMissingTopics(final Collection<String> topics) {
+        final var newTopics = topics.stream()
+                .map(topic -> new NewTopic(topic, partitions, replicationFactor))
+                .collect(Collectors.toList());
+        adminClient.createTopics(newTopics).values().forEach((topic, future) -> {
+            try {
+                future.get();
+                LOGGER.info("Created topic {}", topic);
+            } catch (final ExecutionException e) {
+                if (!(e.getCause() instanceof TopicExistsException)) {
+                    LOGGER.warn("Could not create topic {}", topic, e.getCause());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Samples the lag of each subscribed topic in its consumer group
+     * (i.e the sum, for each partition, of the difference between the end offset and the committed offset,
+     * or the beginning offset if the group has not committed any offset yet).
+     */
+    private void sampleLag() {
+        try {
+            if (consumer == null) {
+                consumer = consumerFactory.createConsumer();
+            }
+            final var topics = commandsRouting.getSubscribedTopics();
+            final List<TopicPartition> partitions = adminClient.describeTopics(topics).all().get().values().stream()
+                    .flatMap(CommandTopicsAdministrator::partitionsOf)
+                    .collect(Collectors.toList());
+            final var committed = new HashMap<TopicPartition, OffsetAndMetadata>();
+            for (final var groupId : new HashSet<>(commandsRouting.getGroupIds().values())) {
+                adminClient.listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata().get()
+                        .forEach((partition, offset) -> {
+                            // A group might have committed offsets of topics that are consumed by other groups
+                            if (groupId.equals(commandsRouting.getGroupIds().get(partition.topic()))) {
+                                committed.put(partition, offset);
+                            }
+                        });
+            }
+            final Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+            final Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            final var sampled = new HashMap<String, Double>();
+            endOffsets.forEach((partition, end) -> {
+                final var position = Optional.ofNullable(committed.get(partition))
+                        .map(OffsetAndMetadata::offset)
+                        .orElseGet(() -> beginningOffsets.getOrDefault(partition, 0L));
+                sampled.merge(partition.topic(), (double) Math.max(0, end - position), Double::sum);
+            });
+            lags.putAll(sampled);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final Throwable e) {
+            LOGGER.warn("Could not sample the lag of the command topics", e); // Must not kill the scheduler
+        }
+    }
+
+    /**
+     * Returns the {@link TopicPartition}s of the topic with the given {@code description}.
+     *
+     * @param description The {@link TopicDescription}.
+     * @return A {@link Stream} of {@link TopicPartition}.
+     */
+    private static Stream<TopicPartition> partitionsOf(final TopicDescription description) {
+        return description.partitions().stream()
+                .map(partition -> new TopicPartition(description.name(), partition.partition()));
+    }
+}
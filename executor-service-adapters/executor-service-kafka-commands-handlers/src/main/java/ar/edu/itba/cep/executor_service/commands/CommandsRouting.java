@@ -0,0 +1,158 @@
+package ar.edu.itba.cep.executor_service.commands;
+
+import ar.edu.itba.cep.executor.Constants;
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.commands.config.CommandsRoutingProperties;
+import ar.edu.itba.cep.executor_service.services.ExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.*;
+
+/**
+ * Component in charge of defining the topics through which commands are received.
+ * When routing is enabled, execution requests are received through per-language topics (or per-resource-class
+ * topics, if several languages are mapped to the same topic), and the node only subscribes to the topics
+ * of the languages supported by the {@link ExecutorService}. This allows having pools of nodes specialized
+ * in some languages, each of them scaled separately.
+ * Each per-language topic is consumed by its own consumer group, so nodes of a pool only share a group
+ * (and its rebalances) with the nodes that subscribe to the same topic, and each request is consumed once
+ * even if nodes of several pools support its language. The shared commands channel keeps the base consumer group.
+ * Control commands (e.g cancellations) are broadcast to all nodes through the control topic,
+ * as the node handling the referenced request is not known. Each node consumes it with a consumer group
+ * of its own, derived from the node id (so it is kept across restarts of the node).
+ */
+@Component
+public class CommandsRouting {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(CommandsRouting.class);
+
+
+    /**
+     * The topics to which the node subscribes to receive commands.
+     */
+    private final List<String> subscribedTopics;
+    /**
+     * The consumer group used to receive commands from each subscribed topic.
+     */
+    private final Map<String, String> groupIds;
+    /**
+     * The topic through which control commands are broadcast.
+     */
+    private final String controlTopic;
+    /**
+     * The consumer group used to receive control commands (unique for the node, so all nodes receive all of them).
+     */
+    private final String controlGroupId;
+
+
+    /**
+     * Constructor.
+     *
+     * @param properties      An instance of {@link CommandsRoutingProperties} with values to configure this component.
+     * @param executorService The {@link ExecutorService} that processes the received requests.
+     */
+    @Autowired
+    public CommandsRouting(final CommandsRoutingProperties properties, final ExecutorService executorService) {
+        final var topics = new LinkedHashSet<String>();
+        if (!properties.isEnabled() || properties.isSubscribeToSharedChannel()) {
+            topics.add(Constants.EXECUTOR_SERVICE_COMMANDS_CHANNEL);
+        }
+        if (properties.isEnabled()) {
+            new TreeSet<>(executorService.getSupportedLanguages()).forEach(language -> topics.add(
+                    topicFor(language, properties.getTopicPrefix(), properties.getLanguageTopics())
+            ));
+        }
+        this.subscribedTopics = List.copyOf(topics);
+        final var groups = new LinkedHashMap<String, String>();
+        topics.forEach(topic -> groups.put(topic, groupIdFor(topic, properties.getGroupId())));
+        this.groupIds = Collections.unmodifiableMap(groups);
+        this.controlTopic = properties.getControlTopic();
+        this.controlGroupId = properties.getGroupId() + "-control-" + nodeId(properties.getNodeId());
+        LOGGER.info("Receiving commands through topics {} (groups {})", subscribedTopics, groupIds.values());
+        LOGGER.info("Receiving control commands through topic {} (group {})", controlTopic, controlGroupId);
+    }
+
+
+    /**
+     * @return The topics to which the node subscribes to receive commands.
+     */
+    public List<String> getSubscribedTopics() {
+        return subscribedTopics;
+    }
+
+    /**
+     * @return The consumer group used to receive commands from each subscribed topic, by topic.
+     */
+    public Map<String, String> getGroupIds() {
+        return groupIds;
+    }
+
+    /**
+     * @return The topic through which control commands are broadcast.
+     */
+    public String getControlTopic() {
+        return controlTopic;
+    }
+
+    /**
+     * @return The consumer group used to receive control commands.
+     */
+    public String getControlGroupId() {
+        return controlGroupId;
+    }
+
+
+    /**
+     * Returns the consumer group used to receive commands from the given {@code topic}.
+     *
+     * @param topic       The topic.
+     * @param baseGroupId The base consumer group of the nodes.
+     * @return The consumer group.
+     */
+    private static String groupIdFor(final String topic, final String baseGroupId) {
+        return Constants.EXECUTOR_SERVICE_COMMANDS_CHANNEL.equals(topic) ? baseGroupId : baseGroupId + "-" + topic;
+    }
+
+    /**
+     * Returns the id of the node, which is the configured one or, if not configured, the host name.
+     *
+     * @param configuredNodeId The configured node id (might be {@code null} or empty).
+     * @return The node id.
+     * @throws IllegalStateException If the node id is not configured, and the host name could not be read.
+     */
+    private static String nodeId(final String configuredNodeId) throws IllegalStateException {
+        if (StringUtils.hasText(configuredNodeId)) {
+            return configuredNodeId;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (final UnknownHostException e) {
+            throw new IllegalStateException("The node id is not configured, and the host name could not be read", e);
+        }
+    }
+
+    /**
+     * Returns the topic through which requests of the given {@code language} are received.
+     *
+     * @param language       The {@link Language}.
+     * @param topicPrefix    Prefix of the per-language topics.
+     * @param languageTopics Topics to be used for specific languages, instead of the per-language ones.
+     * @return The topic.
+     */
+    private static String topicFor(
+            final Language language,
+            final String topicPrefix,
+            final Map<Language, String> languageTopics) {
+        return Optional.ofNullable(languageTopics.get(language))
+                .orElseGet(() -> topicPrefix + language.name().toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,209 @@
+package ar.edu.itba.cep.executor_service.commands;
+
+import ar.edu.itba.cep.executor_service.commands.config.ExecutionCancellationProperties;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancellation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Component in charge of keeping track of the executions that can be cancelled, by request message id.
+ * Cancellations of requests that have not been received yet (e.g still queued in the commands channel)
+ * are kept as pending (up to a max. amount), so those requests are dropped once received.
+ * Executions can be registered with a supersede key (e.g the requester's id),
+ * which makes them cancel older in-flight executions registered with the same key.
+ */
+@Component
+public class ExecutionCancellations {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ExecutionCancellations.class);
+
+
+    /**
+     * The max. amount of pending cancellations (i.e of requests not received yet) that are kept.
+     */
+    private final int maxPendingCancellations;
+    /**
+     * The in-flight executions, by request message id.
+     */
+    private final Map<String, InFlightExecution> inFlight;
+    /**
+     * The id of the newest in-flight execution for each supersede key.
+     */
+    private final Map<String, String> latestBySupersedeKey;
+    /**
+     * The ids of the requests that were cancelled before being received, in insertion order
+     * (i.e the oldest comes first, and is discarded when the max. amount is exceeded).
+     */
+    private final LinkedHashMap<String, Boolean> pendingCancellations;
+    /**
+     * {@link Counter} of requests dropped because they were cancelled before being received.
+     */
+    private final Counter droppedCounter;
+    /**
+     * {@link Counter} of executions cancelled while in-flight (i.e waiting to start, or running).
+     */
+    private final Counter inFlightCounter;
+    /**
+     * {@link Counter} of executions cancelled because a newer request superseded them.
+     */
+    private final Counter supersededCounter;
+
+
+    /**
+     * Constructor.
+     *
+     * @param properties    An instance of {@link ExecutionCancellationProperties}
+     *                      with values to configure this component.
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     */
+    @Autowired
+    public ExecutionCancellations(
+            final ExecutionCancellationProperties properties,
+            final MeterRegistry meterRegistry) {
+        this.maxPendingCancellations = properties.getMaxPendingCancellations();
+        this.inFlight = new HashMap<>();
+        this.latestBySupersedeKey = new HashMap<>();
+        this.pendingCancellations = new LinkedHashMap<>();
+        this.droppedCounter = cancellationsCounter("dropped", meterRegistry);
+        this.inFlightCounter = cancellationsCounter("in-flight", meterRegistry);
+        this.supersededCounter = cancellationsCounter("superseded", meterRegistry);
+    }
+
+
+    /**
+     * Registers the execution of the request with the given {@code messageId}.
+     * If the request was already cancelled (i.e before being received), the returned cancellation is cancelled.
+     * If a {@code supersedeKey} is given, the older in-flight execution registered with the same key is cancelled.
+     *
+     * @param messageId    The id of the request message.
+     * @param supersedeKey The supersede key (or {@code null} if the execution does not supersede others).
+     * @return The {@link ExecutionCancellation} of the execution.
+     * Must be unregistered (see {@link #unregister(String)}) once the execution finishes.
+     */
+    public ExecutionCancellation register(final String messageId, final String supersedeKey) {
+        final var cancellation = new ExecutionCancellation();
+        final Optional<InFlightExecution> superseded;
+        synchronized (this) {
+            if (pendingCancellations.remove(messageId) != null) {
+                droppedCounter.increment();
+                cancellation.cancel();
+                return cancellation;
+            }
+            inFlight.put(messageId, new InFlightExecution(cancellation, supersedeKey));
+            superseded = Optional.ofNullable(supersedeKey)
+                    .map(key -> latestBySupersedeKey.put(key, messageId))
+                    .map(inFlight::get);
+        }
+        superseded.ifPresent(execution -> {
+            LOGGER.debug("Execution of request {} supersedes an older one", messageId);
+            supersededCounter.increment();
+            execution.getCancellation().cancel();
+        });
+        return cancellation;
+    }
+
+    /**
+     * Unregisters the execution of the request with the given {@code messageId} (i.e because it finished).
+     *
+     * @param messageId The id of the request message.
+     */
+    public synchronized void unregister(final String messageId) {
+        Optional.ofNullable(inFlight.remove(messageId))
+                .map(InFlightExecution::getSupersedeKey)
+                .ifPresent(key -> latestBySupersedeKey.remove(key, messageId));
+    }
+
+    /**
+     * Cancels the execution of the request with the given {@code messageId}.
+     * If it is not in-flight, the cancellation is kept as pending, so the request is dropped once received.
+     *
+     * @param messageId The id of the request message.
+     */
+    public void cancel(final String messageId) {
+        final InFlightExecution execution;
+        synchronized (this) {
+            execution = inFlight.get(messageId);
+            if (execution == null) {
+                pendingCancellations.put(messageId, Boolean.TRUE);
+                if (pendingCancellations.size() > maxPendingCancellations) {
+                    final var oldest = pendingCancellations.keySet().iterator();
+                    oldest.next();
+                    oldest.remove(); // Most probably, a request that was already finished.
+                }
+                return;
+            }
+        }
+        inFlightCounter.increment();
+        execution.getCancellation().cancel();
+    }
+
+
+    /**
+     * Creates the {@link Counter} of cancellations with the given {@code stage}.
+     *
+     * @param stage         The stage in which executions were when cancelled.
+     * @param meterRegistry The {@link MeterRegistry} in which the {@link Counter} is registered.
+     * @return The created {@link Counter}.
+     */
+    private static Counter cancellationsCounter(final String stage, final MeterRegistry meterRegistry) {
+        return Counter.builder("executor.cancellations")
+                .description("Cancelled executions")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * An in-flight execution.
+     */
+    private static final class InFlightExecution {
+
+        /**
+         * The {@link ExecutionCancellation} of the execution.
+         */
+        private final ExecutionCancellation cancellation;
+        /**
+         * The supersede key of the execution (or {@code null} if it does not supersede others).
+         */
+        private final String supersedeKey;
+
+
+        /**
+         * Constructor.
+         *
+         * @param cancellation The {@link ExecutionCancellation} of the execution.
+         * @param supersedeKey The supersede key of the execution (or {@code null} if it does not supersede others).
+         */
+        private InFlightExecution(final ExecutionCancellation cancellation, final String supersedeKey) {
+            this.cancellation = cancellation;
+            this.supersedeKey = supersedeKey;
+        }
+
+
+        /**
+         * @return The {@link ExecutionCancellation} of the execution.
+         */
+        private ExecutionCancellation getCancellation() {
+            return cancellation;
+        }
+
+        /**
+         * @return The supersede key of the execution (or {@code null} if it does not supersede others).
+         */
+        private String getSupersedeKey() {
+            return supersedeKey;
+        }
+    }
+}
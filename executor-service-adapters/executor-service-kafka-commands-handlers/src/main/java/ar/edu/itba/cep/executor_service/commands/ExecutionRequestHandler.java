@@ -2,13 +2,28 @@ package ar.edu.itba.cep.executor_service.commands;
 
 import ar.edu.itba.cep.executor.dtos.ExecutionRequestDto;
 import ar.edu.itba.cep.executor.models.ExecutionRequest;
+import ar.edu.itba.cep.executor.models.ExecutionResponse;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancelledException;
+import ar.edu.itba.cep.executor_service.models.ExecutionContext;
+import ar.edu.itba.cep.executor_service.models.ExecutionExpiredException;
+import ar.edu.itba.cep.executor_service.models.StdinDigests;
+import ar.edu.itba.cep.executor_service.models.StdinStorage;
+import ar.edu.itba.cep.executor_service.models.UnknownInputException;
 import ar.edu.itba.cep.executor_service.services.ExecutorService;
+import brave.Span;
 import com.bellotapps.the_messenger.commons.Message;
 import com.bellotapps.the_messenger.commons.payload.PayloadDeserializer;
 import com.bellotapps.the_messenger.consumer.DeserializerMessageHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Optional;
+
 /**
  * Adapts an {@link ExecutorService} into the Kafka Command handlers infrastructure.
  * Implemented as a {@link DeserializerMessageHandler} of {@link ExecutionRequestDto} that takes data from the
@@ -17,6 +32,46 @@ import org.springframework.stereotype.Component;
 @Component
 public class ExecutionRequestHandler extends DeserializerMessageHandler<ExecutionRequestDto> {
 
+    /**
+     * Header holding the digest of the standard input of the execution (see {@link StdinDigests}).
+     * Requests can include it (with an empty standard input) to reference a standard input sent in a previous request.
+     * Responses include it when the standard input is stored, so requesters can reference it in later requests.
+     */
+    /* package */ static final String STDIN_DIGEST_HEADER = "Stdin-Digest";
+    /**
+     * Header included in responses to requests that reference an input that is not known.
+     * Those requests must be resent with the input inline.
+     */
+    /* package */ static final String INPUT_STATUS_HEADER = "Input-Status";
+    /**
+     * Value of the {@link #INPUT_STATUS_HEADER} indicating that the referenced input is not known.
+     */
+    /* package */ static final String UNKNOWN_INPUT_STATUS = "unknown";
+    /**
+     * Header that requests can include to supersede older in-flight executions (which are cancelled).
+     * Its value identifies the requester (e.g a student submission slot):
+     * a request supersedes the older in-flight requests with the same value.
+     */
+    /* package */ static final String SUPERSEDE_HEADER = "Supersede";
+    /**
+     * Header included in responses to requests whose execution was cancelled.
+     */
+    /* package */ static final String EXECUTION_STATUS_HEADER = "Execution-Status";
+    /**
+     * Value of the {@link #EXECUTION_STATUS_HEADER} indicating that the execution was cancelled.
+     */
+    /* package */ static final String CANCELLED_EXECUTION_STATUS = "cancelled";
+    /**
+     * Value of the {@link #EXECUTION_STATUS_HEADER} indicating that the execution was not performed
+     * because its deadline had passed, or because it could not be met.
+     */
+    /* package */ static final String EXPIRED_EXECUTION_STATUS = "expired";
+    /**
+     * Header holding the deadline of the execution (in milliseconds since epoch),
+     * after which the requester will not read the result anymore.
+     */
+    /* package */ static final String DEADLINE_HEADER = "Deadline";
+
     /**
      * The {@link ExecutorService} being adapted.
      */
@@ -27,6 +82,29 @@ public class ExecutionRequestHandler extends DeserializerMessageHandler<Executio
      */
     private final ExecutionResponseHandler executionResponseHandler;
 
+    /**
+     * The {@link ExecutionTracing} in charge of tracing the handling of execution requests.
+     */
+    private final ExecutionTracing executionTracing;
+
+    /**
+     * The {@link ExecutionCancellations} in which executions are registered, so they can be cancelled.
+     */
+    private final ExecutionCancellations executionCancellations;
+
+    /**
+     * {@link Counter} of received execution requests.
+     */
+    private final Counter receivedCounter;
+    /**
+     * {@link Counter} of execution requests shed because their deadline had passed.
+     */
+    private final Counter deadlinePassedCounter;
+    /**
+     * {@link Counter} of execution requests shed because their deadline could not be met.
+     */
+    private final Counter deadlineUnmeetableCounter;
+
 
     /**
      * Constructor.
@@ -35,22 +113,163 @@ public class ExecutionRequestHandler extends DeserializerMessageHandler<Executio
      * @param executorService                 The {@link ExecutorService} being adapted.
      * @param executionResponseHandler        An {@link ExecutionRequestHandler}
      *                                        in charge of returning results to the execution requester.
+     * @param executionTracing                The {@link ExecutionTracing}
+     *                                        in charge of tracing the handling of execution requests.
+     * @param executionCancellations          The {@link ExecutionCancellations} in which executions are registered,
+     *                                        so they can be cancelled.
+     * @param meterRegistry                   The {@link MeterRegistry} in which metrics are registered.
      */
     @Autowired
     public ExecutionRequestHandler(
             final PayloadDeserializer<ExecutionRequestDto> executionRequestDtoDeserializer,
             final ExecutorService executorService,
-            final ExecutionResponseHandler executionResponseHandler) {
+            final ExecutionResponseHandler executionResponseHandler,
+            final ExecutionTracing executionTracing,
+            final ExecutionCancellations executionCancellations,
+            final MeterRegistry meterRegistry) {
         super(executionRequestDtoDeserializer);
         this.executorService = executorService;
         this.executionResponseHandler = executionResponseHandler;
-
+        this.executionTracing = executionTracing;
+        this.executionCancellations = executionCancellations;
+        this.receivedCounter = Counter.builder("executor.requests.received")
+                .description("Received execution requests")
+                .register(meterRegistry);
+        this.deadlinePassedCounter = shedCounter("deadline-passed", meterRegistry);
+        this.deadlineUnmeetableCounter = shedCounter("deadline-unmeetable", meterRegistry);
     }
 
 
     @Override
     protected void andThen(final ExecutionRequestDto executionRequestDto, final Message message) {
-        final var executionResponse = executorService.processExecutionRequest(executionRequestDto.getExecutionRequest());
-        executionResponseHandler.sendExecutionResponse(message, executionResponse);
+        receivedCounter.increment();
+        final var span = executionTracing.startExecution(message);
+        final var cancellation = executionCancellations
+                .register(message.getId(), message.headerValue(SUPERSEDE_HEADER).orElse(null));
+        try (final var ignored = executionTracing.inScope(span)) {
+            final var executionRequest = executionRequestDto.getExecutionRequest();
+            final var stdinStorage = new StdinStorage();
+            final var executionContext = buildContext(executionRequest, message)
+                    .withStdinStorage(stdinStorage)
+                    .withCancellation(cancellation)
+                    .withDeadline(readDeadline(message).orElse(null));
+            final var headers = new HashMap<String, String>();
+            ExecutionResponse executionResponse;
+            try {
+                if (cancellation.isCancelled()) {
+                    throw new ExecutionCancelledException("The execution was cancelled before being received");
+                }
+                if (executionContext.isExpired()) {
+                    throw new ExecutionExpiredException("The deadline passed before being received", true);
+                }
+                executionResponse = executorService.processExecutionRequest(executionRequest, executionContext);
+                tagResult(span, executionResponse);
+            } catch (final UnknownInputException e) {
+                // The requester must resend the request with the input inline.
+                executionResponse = abortedExecutionResponse();
+                headers.put(INPUT_STATUS_HEADER, UNKNOWN_INPUT_STATUS);
+                span.tag("execution.input", UNKNOWN_INPUT_STATUS);
+            } catch (final ExecutionCancelledException e) {
+                executionResponse = abortedExecutionResponse();
+                headers.put(EXECUTION_STATUS_HEADER, CANCELLED_EXECUTION_STATUS);
+                span.tag("execution.status", CANCELLED_EXECUTION_STATUS);
+            } catch (final ExecutionExpiredException e) {
+                // Shed, as the result would not be read anyway.
+                (e.isDeadlinePassed() ? deadlinePassedCounter : deadlineUnmeetableCounter).increment();
+                executionResponse = abortedExecutionResponse();
+                headers.put(EXECUTION_STATUS_HEADER, EXPIRED_EXECUTION_STATUS);
+                span.tag("execution.status", EXPIRED_EXECUTION_STATUS);
+            }
+            stdinStorage.getDigest().ifPresent(digest -> headers.put(STDIN_DIGEST_HEADER, digest));
+            executionResponseHandler.sendExecutionResponse(message, executionResponse, headers);
+        } catch (final RuntimeException | Error e) {
+            span.error(e);
+            throw e;
+        } finally {
+            executionCancellations.unregister(message.getId());
+            span.finish();
+        }
+    }
+
+
+    /**
+     * Builds the {@link ExecutionContext} for the given {@code executionRequest}.
+     * If the request does not include its standard input, the digest in the {@link #STDIN_DIGEST_HEADER} (if any)
+     * is used, meaning that the request references a standard input sent in a previous request.
+     *
+     * @param executionRequest The {@link ExecutionRequest} being handled.
+     * @param message          The {@link Message} that carried the request.
+     * @return The built {@link ExecutionContext}.
+     */
+    private static ExecutionContext buildContext(final ExecutionRequest executionRequest, final Message message) {
+        if (!executionRequest.getStdin().isEmpty()) {
+            return ExecutionContext.empty();
+        }
+        return message.headerValue(STDIN_DIGEST_HEADER)
+                .map(ExecutionContext.empty()::withStdinDigest)
+                .orElseGet(ExecutionContext::empty);
+    }
+
+    /**
+     * Reads the deadline of the execution from the {@link #DEADLINE_HEADER} of the given {@code message}.
+     * Invalid values are ignored (i.e the execution is handled as if it had no deadline).
+     *
+     * @param message The {@link Message} that carried the request.
+     * @return An {@link Optional} holding the deadline, or empty if there is no (valid) deadline.
+     */
+    private static Optional<Instant> readDeadline(final Message message) {
+        return message.headerValue(DEADLINE_HEADER).flatMap(value -> {
+            try {
+                return Optional.of(Instant.ofEpochMilli(Long.parseLong(value.trim())));
+            } catch (final NumberFormatException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Creates the {@link Counter} of execution requests shed for the given {@code reason}.
+     *
+     * @param reason        The reason why requests are shed.
+     * @param meterRegistry The {@link MeterRegistry} in which the {@link Counter} is registered.
+     * @return The created {@link Counter}.
+     */
+    private static Counter shedCounter(final String reason, final MeterRegistry meterRegistry) {
+        return Counter.builder("executor.requests.shed")
+                .description("Execution requests not performed, as their result would not be read")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the {@link ExecutionResponse} sent when an execution is aborted before having a result
+     * (e.g because it was cancelled). The reason is included in the response headers.
+     *
+     * @return The created {@link ExecutionResponse}.
+     */
+    private static ExecutionResponse abortedExecutionResponse() {
+        return new ExecutionResponse(
+                ExecutionResponse.ExecutionResult.UNKNOWN_ERROR,
+                -1,
+                Collections.emptyList(),
+                Collections.emptyList()
+        );
+    }
+
+    /**
+     * Tags the given execution {@code span} with the result of the given {@code executionResponse}.
+     * Executions that did not complete (except for compile errors, which are the requester's responsibility)
+     * are marked as errors, so they are always kept when sampling traces.
+     *
+     * @param span              The execution {@link Span}.
+     * @param executionResponse The {@link ExecutionResponse} of the execution.
+     */
+    private static void tagResult(final Span span, final ExecutionResponse executionResponse) {
+        final var result = executionResponse.getResult();
+        span.tag("execution.result", String.valueOf(result));
+        if (result != ExecutionResponse.ExecutionResult.COMPLETED
+                && result != ExecutionResponse.ExecutionResult.COMPILE_ERROR) {
+            span.tag("error", String.valueOf(result));
+        }
     }
 }
@@ -10,6 +10,9 @@ import com.bellotapps.the_messenger.producer.MessageProducer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * Component in charge of returning a response with an {@link ExecutionResponse}
  * to the one that send an {@link ar.edu.itba.cep.executor.models.ExecutionRequest}.
@@ -33,6 +36,11 @@ public class ExecutionResponseHandler {
      */
     private final String defaultReplyChannel;
 
+    /**
+     * The {@link ExecutionTracing} used to trace the reply, and to propagate the trace context into it.
+     */
+    private final ExecutionTracing executionTracing;
+
 
     /**
      * @param messageProducer                           The {@link MessageProducer}
@@ -43,15 +51,19 @@ public class ExecutionResponseHandler {
      *                                                  that can create the response {@link Message}s.
      * @param properties                                An instance of {@link ExecutionResponseHandlerProperties}
      *                                                  with values to configure this compoent.
+     * @param executionTracing                          The {@link ExecutionTracing} used to trace the reply,
+     *                                                  and to propagate the trace context into it.
      */
     @Autowired
     public ExecutionResponseHandler(
             final MessageProducer messageProducer,
             final MessageBuilderFactory<ExecutionResponseDto> executionResponseDtoMessageBuilderFactory,
-            final ExecutionResponseHandlerProperties properties) {
+            final ExecutionResponseHandlerProperties properties,
+            final ExecutionTracing executionTracing) {
         this.messageProducer = messageProducer;
         this.executionResponseDtoMessageBuilderFactory = executionResponseDtoMessageBuilderFactory;
         this.defaultReplyChannel = properties.getDefaultReplyChannel();
+        this.executionTracing = executionTracing;
     }
 
 
@@ -62,12 +74,36 @@ public class ExecutionResponseHandler {
      * @param executionResponse The {@link ExecutionResponse} to be sent to the requester.
      */
     public void sendExecutionResponse(final Message incomingMessage, final ExecutionResponse executionResponse) {
+        sendExecutionResponse(incomingMessage, executionResponse, Collections.emptyMap());
+    }
+
+    /**
+     * Sends the {@link ExecutionResponse} in response to the given {@code incomingMessage},
+     * including the given {@code headers} in the response {@link Message}.
+     *
+     * @param incomingMessage   The {@link Message} being responded.
+     * @param executionResponse The {@link ExecutionResponse} to be sent to the requester.
+     * @param headers           Additional headers to be included in the response {@link Message}.
+     */
+    public void sendExecutionResponse(
+            final Message incomingMessage,
+            final ExecutionResponse executionResponse,
+            final Map<String, String> headers) {
         final var replyChannel = incomingMessage
                 .headerValue(Constants.REPLY_CHANNEL_HEADER)
                 .orElse(defaultReplyChannel);
-        final var message = executionResponseDtoMessageBuilderFactory.replyMessage(incomingMessage)
-                .withPayload(ExecutionResponseDto.buildFromResponse(executionResponse))
-                .build();
-        messageProducer.send(message, replyChannel);
+        final var span = executionTracing.startPhase("reply-send");
+        try (final var ignored = executionTracing.inScope(span)) {
+            final var messageBuilder = executionResponseDtoMessageBuilderFactory.replyMessage(incomingMessage)
+                    .withPayload(ExecutionResponseDto.buildFromResponse(executionResponse));
+            headers.forEach(messageBuilder::withHeader);
+            executionTracing.propagationHeaders().forEach(messageBuilder::withHeader);
+            messageProducer.send(messageBuilder.build(), replyChannel);
+        } catch (final RuntimeException | Error e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.finish();
+        }
     }
 }
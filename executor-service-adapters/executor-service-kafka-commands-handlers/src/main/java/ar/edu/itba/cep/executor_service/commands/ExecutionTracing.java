@@ -0,0 +1,171 @@
+package ar.edu.itba.cep.executor_service.commands;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import com.bellotapps.the_messenger.commons.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Component in charge of tracing the handling of execution requests.
+ * It creates the execution span from the trace context propagated in the incoming {@link Message} headers,
+ * records the phases that take place before the execution request is handled (i.e queue wait and deserialization),
+ * and allows propagating the trace context into the reply {@link Message}.
+ */
+@Component
+public class ExecutionTracing {
+
+    /**
+     * Name of the span that covers the whole handling of an execution request.
+     */
+    /* package */ static final String EXECUTION_SPAN_NAME = "execution";
+
+
+    /**
+     * Holds the time (in microseconds since epoch) at which the command being dispatched in the current thread
+     * was published, and the time at which it was received.
+     */
+    private final ThreadLocal<long[]> receptionTimes;
+
+    /**
+     * The {@link Tracer} used to create spans.
+     */
+    private final Tracer tracer;
+    /**
+     * {@link TraceContext.Extractor} that takes the trace context from the incoming {@link Message} headers.
+     */
+    private final TraceContext.Extractor<Message> extractor;
+    /**
+     * {@link TraceContext.Injector} that puts the trace context into a {@link Map} of headers.
+     */
+    private final TraceContext.Injector<Map<String, String>> injector;
+    /**
+     * The {@link SlowOrFailedExecutionsSpanHandler} that buffers the spans of non-sampled executions.
+     */
+    private final SlowOrFailedExecutionsSpanHandler spanHandler;
+
+
+    /**
+     * Constructor.
+     *
+     * @param tracing     The {@link Tracing} component.
+     * @param spanHandler The {@link SlowOrFailedExecutionsSpanHandler} that buffers the spans
+     *                    of non-sampled executions.
+     */
+    @Autowired
+    public ExecutionTracing(final Tracing tracing, final SlowOrFailedExecutionsSpanHandler spanHandler) {
+        this.receptionTimes = new ThreadLocal<>();
+        this.tracer = tracing.tracer();
+        this.extractor = tracing.propagation().extractor((message, key) -> message.headerValue(key).orElse(null));
+        this.injector = tracing.propagation().injector(Map::put);
+        this.spanHandler = spanHandler;
+    }
+
+
+    /**
+     * Indicates that a command has been received in the current thread.
+     *
+     * @param publishedAt The time (in milliseconds since epoch) at which the command was published.
+     */
+    /* package */ void received(final long publishedAt) {
+        receptionTimes.set(new long[]{publishedAt * 1000, nowMicros()});
+    }
+
+    /**
+     * Indicates that the command received in the current thread has been handled
+     * (so its reception times are not taken by the next command, if it is not indicated as received).
+     */
+    /* package */ void handled() {
+        receptionTimes.remove();
+    }
+
+    /**
+     * Starts the execution span for the given {@code message}, continuing the trace propagated in its headers.
+     * The queue wait and deserialization phases are recorded as children of it.
+     * If the execution is not sampled, its spans are buffered, so they can be reported if it is slow or failed.
+     *
+     * @param message The {@link Message} with the execution request.
+     * @return The started execution {@link Span}. It must be finished by the caller.
+     */
+    /* package */ Span startExecution(final Message message) {
+        final var now = nowMicros();
+        final var times = receptionTimes.get();
+        receptionTimes.remove();
+        final var publishedAt = times == null ? now : times[0];
+        final var receivedAt = times == null ? now : times[1];
+
+        final TraceContextOrSamplingFlags extracted = extractor.extract(message);
+        final var span = tracer.nextSpan(extracted).name(EXECUTION_SPAN_NAME).start(Math.min(publishedAt, receivedAt));
+        if (!span.isNoop()) {
+            spanHandler.startBuffering(span.context());
+        }
+        recordChild(span, "queue-wait", publishedAt, receivedAt);
+        recordChild(span, "deserialization", receivedAt, now);
+        return span;
+    }
+
+    /**
+     * Starts a child span of the current one, for the phase with the given {@code name}.
+     *
+     * @param name The phase name.
+     * @return The started {@link Span}. It must be finished by the caller.
+     */
+    /* package */ Span startPhase(final String name) {
+        return tracer.nextSpan().name(name).start();
+    }
+
+    /**
+     * Puts the given {@code span} in scope (i.e makes it the current span).
+     *
+     * @param span The {@link Span} to be put in scope.
+     * @return The {@link Tracer.SpanInScope} that must be closed when the span is not in scope anymore.
+     */
+    /* package */ Tracer.SpanInScope inScope(final Span span) {
+        return tracer.withSpanInScope(span);
+    }
+
+    /**
+     * Returns the headers that propagate the current trace context, to be included in outgoing {@link Message}s.
+     *
+     * @return A {@link Map} with the headers.
+     */
+    /* package */ Map<String, String> propagationHeaders() {
+        final var headers = new HashMap<String, String>();
+        final var span = tracer.currentSpan();
+        if (span != null) {
+            injector.inject(span.context(), headers);
+        }
+        return headers;
+    }
+
+
+    /**
+     * Records an already finished phase as a child of the given {@code parent}.
+     *
+     * @param parent The parent {@link Span}.
+     * @param name   The phase name.
+     * @param start  The time (in microseconds since epoch) at which the phase started.
+     * @param finish The time (in microseconds since epoch) at which the phase finished.
+     */
+    private void recordChild(final Span parent, final String name, final long start, final long finish) {
+        if (parent.isNoop() || finish < start) {
+            return;
+        }
+        tracer.newChild(parent.context()).name(name).start(start).finish(finish);
+    }
+
+    /**
+     * @return The current time, in microseconds since epoch.
+     */
+    private static long nowMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+}
@@ -1,31 +1,87 @@
 package ar.edu.itba.cep.executor_service.commands;
 
 
-import ar.edu.itba.cep.executor.Constants;
 import com.bellotapps.the_messenger.commons.Message;
 import com.bellotapps.the_messenger.consumer.BuiltInMessageHandler;
 import com.bellotapps.the_messenger.consumer.MessageHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistrar;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
 
 /**
  * Kafka command messages dispatcher.
+ * Commands are received through the topics defined by the {@link CommandsRouting}, each of them with a listener
+ * of its own (as each topic is consumed by its own consumer group). Only execution requests are handled from them.
+ * Control commands (i.e cancellations) are only accepted through the control topic, which is broadcast to all nodes.
+ * Command topics are consumed through shared consumer groups, so a cancellation sent through them would reach
+ * an arbitrary node (usually not the one running the request), or the right one only after the request finished
+ * (if it landed in the same partition), and thus they are ignored if received through them.
  */
 @Component
-public class KafkaCommandMessagesDispatcher {
+public class KafkaCommandMessagesDispatcher implements KafkaListenerConfigurer {
+
+    /**
+     * The {@link Method} that receives the commands from the subscribed topics.
+     */
+    private final static Method DISPATCH_METHOD = ReflectionUtils
+            .findMethod(KafkaCommandMessagesDispatcher.class, "dispatch", Message.class, long.class);
 
     /**
-     * The {@link MessageHandler} in charge of dispatching actions based on received messages.
+     * The {@link MessageHandler} in charge of dispatching actions based on received messages
+     * (i.e it only handles execution requests).
      */
     private final MessageHandler dispatcherMessageHandler;
 
+    /**
+     * The {@link MessageHandler} in charge of dispatching actions based on received control messages
+     * (i.e it only handles control commands).
+     */
+    private final MessageHandler controlMessageHandler;
+
+    /**
+     * The {@link CommandsRouting} that defines the topics through which commands are received.
+     */
+    private final CommandsRouting commandsRouting;
+
+    /**
+     * The {@link ExecutionTracing} that is notified when commands are received.
+     */
+    private final ExecutionTracing executionTracing;
+
+    /**
+     * The {@link TimeToFirstMessage} that is notified when commands are received.
+     */
+    private final TimeToFirstMessage timeToFirstMessage;
+
     /**
      * @param executionRequestHandler The {@link MessageHandler}
      *                                in charge of handling execution request command messages.
+     * @param cancelExecutionHandler  The {@link MessageHandler}
+     *                                in charge of handling cancel execution command messages.
+     * @param executionTracing        The {@link ExecutionTracing} that is notified when commands are received.
+     * @param timeToFirstMessage      The {@link TimeToFirstMessage} that is notified when commands are received.
+     * @param commandsRouting         The {@link CommandsRouting} that defines the topics
+     *                                through which commands are received.
      */
     @Autowired
-    public KafkaCommandMessagesDispatcher(final MessageHandler executionRequestHandler) {
+    public KafkaCommandMessagesDispatcher(
+            final ExecutionRequestHandler executionRequestHandler,
+            final CancelExecutionHandler cancelExecutionHandler,
+            final ExecutionTracing executionTracing,
+            final TimeToFirstMessage timeToFirstMessage,
+            final CommandsRouting commandsRouting) {
+        this.executionTracing = executionTracing;
+        this.timeToFirstMessage = timeToFirstMessage;
+        this.commandsRouting = commandsRouting;
         this.dispatcherMessageHandler = BuiltInMessageHandler.Builder.create()
                 .configureTypedMessageHandlers()
                 .configureCommandMessageHandlers()
@@ -33,16 +89,77 @@ public class KafkaCommandMessagesDispatcher {
                 .continueWithParentBuilder()
                 .continueWithParentBuilder()
                 .build();
+        this.controlMessageHandler = BuiltInMessageHandler.Builder.create()
+                .configureTypedMessageHandlers()
+                .configureCommandMessageHandlers()
+                .handleCommandWith("cancelExecution", cancelExecutionHandler)
+                .continueWithParentBuilder()
+                .continueWithParentBuilder()
+                .build();
+    }
+
+
+    /**
+     * Registers a listener for each topic through which commands are received,
+     * which consumes it with the topic's consumer group (see {@link CommandsRouting#getGroupIds()}).
+     *
+     * @param registrar The {@link KafkaListenerEndpointRegistrar} in which listeners are registered.
+     */
+    @Override
+    public void configureKafkaListeners(final KafkaListenerEndpointRegistrar registrar) {
+        final var messageHandlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        messageHandlerMethodFactory.afterPropertiesSet();
+        commandsRouting.getGroupIds().forEach((topic, groupId) -> {
+            final var endpoint = new MethodKafkaListenerEndpoint<String, Message>();
+            endpoint.setId("commands-" + topic);
+            endpoint.setGroupId(groupId);
+            endpoint.setTopics(topic);
+            endpoint.setBean(this);
+            endpoint.setMethod(DISPATCH_METHOD);
+            endpoint.setMessageHandlerMethodFactory(messageHandlerMethodFactory);
+            registrar.registerEndpoint(endpoint);
+        });
     }
 
 
     /**
      * Receives a {@link Message}s and delegates its handling to the {@code dispatcherMessageHandler}.
+     * The {@link Message}s are received through the topics defined by the {@link CommandsRouting}
+     * (see {@link #configureKafkaListeners(KafkaListenerEndpointRegistrar)}).
+     * Only execution requests are handled (i.e cancellations must be sent through the control topic).
+     *
+     * @param message     The received {@link Message}.
+     * @param publishedAt The timestamp of the Kafka record that carried the {@link Message}.
+     */
+    public void dispatch(
+            final Message message,
+            @Header(KafkaHeaders.RECEIVED_TIMESTAMP) final long publishedAt) {
+        this.timeToFirstMessage.consumed();
+        this.executionTracing.received(publishedAt);
+        try {
+            this.dispatcherMessageHandler.handle(message);
+        } finally {
+            this.executionTracing.handled(); // Not all messages start an execution span (which takes the times)
+        }
+    }
+
+    /**
+     * Receives a control {@link Message} (i.e a cancellation) broadcast to all nodes,
+     * and delegates its handling to the {@code controlMessageHandler} (i.e other commands are ignored).
+     * This is the only way of cancelling executions, as all nodes receive the cancellation
+     * (and the one handling the referenced request cancels it, even if it is running).
+     * When the node starts for the first time, only control commands published after that are received.
      *
      * @param message The received {@link Message}.
      */
-    @KafkaListener(topics = {Constants.EXECUTOR_SERVICE_COMMANDS_CHANNEL,}, autoStartup = "true")
-    public void dispatch(final Message message) {
-        this.dispatcherMessageHandler.handle(message);
+    @KafkaListener(
+            topics = "#{@commandsRouting.controlTopic}",
+            groupId = "#{@commandsRouting.controlGroupId}",
+            properties = {"auto.offset.reset=latest"},
+            concurrency = "1", // Cancellations are quick to handle (the listener concurrency is for executions)
+            autoStartup = "true"
+    )
+    public void dispatchControl(final Message message) {
+        this.controlMessageHandler.handle(message);
     }
 }
@@ -0,0 +1,209 @@
+package ar.edu.itba.cep.executor_service.commands;
+
+import brave.handler.FinishedSpanHandler;
+import brave.handler.MutableSpan;
+import brave.propagation.TraceContext;
+import zipkin2.Endpoint;
+import zipkin2.Span;
+import zipkin2.reporter.Reporter;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link FinishedSpanHandler} that makes sure slow or failed executions are always reported,
+ * even if they were not sampled (i.e sampling is decided when the execution starts, so it can be rate-limited,
+ * while slow or failed executions are kept based on what happened).
+ * Spans of non-sampled executions are buffered till the execution span finishes. Then, if the execution was slow,
+ * or it failed, they are sent to the {@link Reporter}. Otherwise, they are discarded.
+ * Only traces whose buffering was started (see {@link #startBuffering(TraceContext)}) are buffered
+ * (i.e spans of other traces, like those of actuator requests or scheduled tasks, are never kept),
+ * and buffers older than a max. age are evicted (e.g if the execution span was never finished).
+ */
+public class SlowOrFailedExecutionsSpanHandler extends FinishedSpanHandler {
+
+    /**
+     * The {@link Reporter} to which spans of slow or failed executions are sent.
+     */
+    private final Reporter<Span> reporter;
+    /**
+     * Executions that take longer than this value (in microseconds) are considered slow.
+     */
+    private final long slowExecutionThreshold;
+    /**
+     * The max. amount of non-sampled traces that can be buffered at the same time.
+     */
+    private final int maxBufferedTraces;
+    /**
+     * The max. time (in nanoseconds) a trace can be buffered before being evicted.
+     */
+    private final long maxBufferedTraceAge;
+    /**
+     * Spans of non-sampled executions, by trace id, waiting till the execution span finishes.
+     */
+    private final Map<String, BufferedTrace> bufferedTraces;
+
+
+    /**
+     * Constructor.
+     *
+     * @param reporter               The {@link Reporter} to which spans of slow or failed executions are sent.
+     * @param slowExecutionThreshold Executions that take longer than this value (in milliseconds)
+     *                               are considered slow.
+     * @param maxBufferedTraces      The max. amount of non-sampled traces that can be buffered at the same time.
+     * @param maxBufferedTraceAge    The max. time (in milliseconds) a trace can be buffered before being evicted.
+     */
+    public SlowOrFailedExecutionsSpanHandler(
+            final Reporter<Span> reporter,
+            final long slowExecutionThreshold,
+            final int maxBufferedTraces,
+            final long maxBufferedTraceAge) {
+        this.reporter = reporter;
+        this.slowExecutionThreshold = slowExecutionThreshold * 1000;
+        this.maxBufferedTraces = maxBufferedTraces;
+        this.maxBufferedTraceAge = TimeUnit.MILLISECONDS.toNanos(maxBufferedTraceAge);
+        this.bufferedTraces = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Starts buffering the spans of the execution with the given {@code context}
+     * (i.e of the trace it belongs to), if it was not sampled.
+     * Must be called when the execution span starts (before any of its children finishes).
+     * Buffers that are too old are evicted first. If the max. amount of buffered traces is still reached,
+     * the trace is not buffered (i.e only the execution span is reported if it is slow or failed).
+     *
+     * @param context The {@link TraceContext} of the execution span.
+     */
+    /* package */ void startBuffering(final TraceContext context) {
+        if (Boolean.TRUE.equals(context.sampled())) {
+            return; // Already sampled, so it will be reported anyway.
+        }
+        final var now = System.nanoTime();
+        bufferedTraces.values().removeIf(trace -> now - trace.getStartedAt() > maxBufferedTraceAge);
+        if (bufferedTraces.size() < maxBufferedTraces) {
+            bufferedTraces.putIfAbsent(context.traceIdString(), new BufferedTrace(now));
+        }
+    }
+
+
+    @Override
+    public boolean alwaysSampleLocal() {
+        return true; // Non-sampled spans must be recorded as they might be reported later.
+    }
+
+    @Override
+    public boolean handle(final TraceContext context, final MutableSpan span) {
+        if (Boolean.TRUE.equals(context.sampled())) {
+            return true; // Already sampled, so it will be reported anyway.
+        }
+        final var traceId = context.traceIdString();
+        if (!ExecutionTracing.EXECUTION_SPAN_NAME.equals(span.name())) {
+            final var buffered = bufferedTraces.get(traceId);
+            if (buffered != null) {
+                buffered.getSpans().add(toZipkin(context, span));
+            }
+            return true;
+        }
+        final var buffered = bufferedTraces.remove(traceId);
+        if (isSlowOrFailed(span)) {
+            if (buffered != null) {
+                buffered.getSpans().forEach(reporter::report);
+            }
+            reporter.report(toZipkin(context, span));
+        }
+        return true;
+    }
+
+
+    /**
+     * Indicates whether the given execution {@code span} belongs to a slow or failed execution.
+     *
+     * @param span The execution {@link MutableSpan}.
+     * @return {@code true} if the execution was slow or it failed, or {@code false} otherwise.
+     */
+    private boolean isSlowOrFailed(final MutableSpan span) {
+        return span.error() != null
+                || span.tag("error") != null
+                || span.finishTimestamp() - span.startTimestamp() >= slowExecutionThreshold;
+    }
+
+    /**
+     * Converts the given {@link MutableSpan} into a Zipkin {@link Span}.
+     *
+     * @param context The {@link TraceContext} of the span.
+     * @param span    The {@link MutableSpan} to be converted.
+     * @return The Zipkin {@link Span}.
+     */
+    private static Span toZipkin(final TraceContext context, final MutableSpan span) {
+        final var builder = Span.newBuilder()
+                .traceId(context.traceIdString())
+                .parentId(context.parentIdString())
+                .id(context.spanIdString())
+                .name(span.name())
+                .timestamp(span.startTimestamp())
+                .duration(Math.max(1L, span.finishTimestamp() - span.startTimestamp()))
+                .localEndpoint(Endpoint.newBuilder()
+                        .serviceName(span.localServiceName())
+                        .ip(span.localIp())
+                        .port(span.localPort())
+                        .build()
+                );
+        if (span.kind() != null) {
+            builder.kind(Span.Kind.valueOf(span.kind().name()));
+        }
+        span.forEachTag(Span.Builder::putTag, builder);
+        span.forEachAnnotation(Span.Builder::addAnnotation, builder);
+        if (span.error() != null && span.tag("error") == null) {
+            final var error = span.error();
+            builder.putTag("error", error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+        }
+        return builder.build();
+    }
+
+
+    /**
+     * The buffered spans of a non-sampled execution.
+     */
+    private static final class BufferedTrace {
+
+        /**
+         * The time (in nanoseconds, as returned by {@link System#nanoTime()}) at which buffering started.
+         */
+        private final long startedAt;
+        /**
+         * The buffered spans.
+         */
+        private final Queue<Span> spans;
+
+
+        /**
+         * Constructor.
+         *
+         * @param startedAt The time (in nanoseconds, as returned by {@link System#nanoTime()})
+         *                  at which buffering started.
+         */
+        private BufferedTrace(final long startedAt) {
+            this.startedAt = startedAt;
+            this.spans = new ConcurrentLinkedQueue<>();
+        }
+
+
+        /**
+         * @return The time (in nanoseconds, as returned by {@link System#nanoTime()}) at which buffering started.
+         */
+        private long getStartedAt() {
+            return startedAt;
+        }
+
+        /**
+         * @return The buffered spans.
+         */
+        private Queue<Span> getSpans() {
+            return spans;
+        }
+    }
+}
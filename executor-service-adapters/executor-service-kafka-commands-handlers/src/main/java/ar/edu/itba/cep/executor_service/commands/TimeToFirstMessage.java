@@ -0,0 +1,63 @@
+package ar.edu.itba.cep.executor_service.commands;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Component that records the time it takes for the node to consume its first command, since the JVM started.
+ * This is the startup latency that matters when scaling out (i.e the time till a new node starts working).
+ */
+@Component
+public class TimeToFirstMessage {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(TimeToFirstMessage.class);
+
+
+    /**
+     * The {@link MeterRegistry} in which metrics are registered.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Indicates whether a command has already been consumed.
+     */
+    private final AtomicBoolean consumed;
+
+
+    /**
+     * Constructor.
+     *
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     */
+    @Autowired
+    public TimeToFirstMessage(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.consumed = new AtomicBoolean(false);
+    }
+
+
+    /**
+     * Indicates that a command has been consumed. Only the first call is recorded.
+     */
+    /* package */ void consumed() {
+        if (!consumed.compareAndSet(false, true)) {
+            return;
+        }
+        final long timeToFirstMessage = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("executor.startup.time-to-first-message", () -> timeToFirstMessage, TimeUnit.MILLISECONDS)
+                .description("Time it took for the node to consume its first command, since the JVM started")
+                .register(meterRegistry);
+        LOGGER.info("First command consumed {} ms after the JVM started", timeToFirstMessage);
+    }
+}
@@ -0,0 +1,88 @@
+package ar.edu.itba.cep.executor_service.commands.config;
+
+import ar.edu.itba.cep.executor.Constants;
+import ar.edu.itba.cep.executor.models.Language;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the routing of commands
+ * (i.e for the {@link ar.edu.itba.cep.executor_service.commands.CommandsRouting}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = CommandsRoutingProperties.PREFIX)
+public class CommandsRoutingProperties {
+
+    /**
+     * Prefix for the properties of the commands routing.
+     */
+    /* package */ static final String PREFIX = KafkaCommandsHandlersConfig.PREFIX + "." + "routing";
+
+
+    /**
+     * Indicates whether commands are routed by language (i.e the node only subscribes to the topics
+     * of the languages it supports), or all of them are received through the shared commands channel.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The base consumer group of the nodes. The shared commands channel is consumed with this group,
+     * and each per-language topic with this group suffixed with the topic name.
+     */
+    private String groupId = "executor_service";
+
+    /**
+     * Id of the node, from which the consumer group used to receive control commands is derived.
+     * It must be unique among the nodes, and stable across restarts of a node (so restarts do not leave
+     * abandoned consumer groups behind). The host name is used if not set.
+     */
+    private String nodeId;
+
+    /**
+     * Prefix of the per-language topics (the lower-cased language name is appended to it).
+     */
+    private String topicPrefix = Constants.EXECUTOR_SERVICE_COMMANDS_CHANNEL + "-";
+
+    /**
+     * Topics to be used for specific languages, instead of the per-language ones
+     * (e.g to group several languages in a topic per resource class).
+     */
+    private Map<Language, String> languageTopics = new HashMap<>();
+
+    /**
+     * Indicates whether the node also subscribes to the shared commands channel when commands are routed
+     * (e.g to keep serving requesters that do not route their requests yet).
+     */
+    private boolean subscribeToSharedChannel = true;
+
+    /**
+     * The topic through which control commands (e.g cancellations) are broadcast to all nodes.
+     */
+    private String controlTopic = Constants.EXECUTOR_SERVICE_COMMANDS_CHANNEL + "-Control";
+
+    /**
+     * Indicates whether the subscribed topics must be created (if they do not exist) when the node starts.
+     */
+    private boolean createTopics = true;
+
+    /**
+     * The amount of partitions of the created topics.
+     * Requesters must key their commands (e.g with the requester's id) so they spread evenly among partitions.
+     */
+    private int partitions = 12;
+
+    /**
+     * The replication factor of the created topics.
+     */
+    private short replicationFactor = 1;
+
+    /**
+     * Time (in milliseconds) between samples of the lag of the subscribed topics.
+     */
+    private long lagSampleInterval = 10000; // 10 seconds
+}
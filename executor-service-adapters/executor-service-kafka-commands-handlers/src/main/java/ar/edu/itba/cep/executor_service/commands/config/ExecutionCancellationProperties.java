@@ -0,0 +1,27 @@
+package ar.edu.itba.cep.executor_service.commands.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the cancellation of executions
+ * (i.e for the {@link ar.edu.itba.cep.executor_service.commands.ExecutionCancellations}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = ExecutionCancellationProperties.PREFIX)
+public class ExecutionCancellationProperties {
+
+    /**
+     * Prefix for the properties of the executions cancellation.
+     */
+    /* package */ static final String PREFIX = KafkaCommandsHandlersConfig.PREFIX + "." + "cancellation";
+
+
+    /**
+     * The max. amount of cancellations of requests not received yet that are kept
+     * (the oldest ones are discarded when exceeded).
+     */
+    private int maxPendingCancellations = 10000;
+}
@@ -0,0 +1,38 @@
+package ar.edu.itba.cep.executor_service.commands.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the tracing of executions
+ * (i.e for the {@link ar.edu.itba.cep.executor_service.commands.SlowOrFailedExecutionsSpanHandler}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = ExecutionTracingProperties.PREFIX)
+public class ExecutionTracingProperties {
+
+    /**
+     * Prefix for the properties of the executions tracing.
+     */
+    /* package */ static final String PREFIX = KafkaCommandsHandlersConfig.PREFIX + "." + "tracing";
+
+
+    /**
+     * Executions that take longer than this value (in milliseconds) are always traced, even if not sampled.
+     */
+    private long slowExecutionThreshold = 10000; // 10 seconds
+
+    /**
+     * The max. amount of non-sampled traces that can be buffered at the same time,
+     * waiting to know whether they are slow or failed executions.
+     */
+    private int maxBufferedTraces = 1000;
+
+    /**
+     * The max. time (in milliseconds) a non-sampled trace can be buffered before being evicted
+     * (e.g because its execution span was never finished).
+     */
+    private long maxBufferedTraceAge = 600000; // 10 minutes
+}
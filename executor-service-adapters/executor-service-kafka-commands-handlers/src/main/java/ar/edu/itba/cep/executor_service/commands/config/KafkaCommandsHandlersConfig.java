@@ -2,6 +2,11 @@ package ar.edu.itba.cep.executor_service.commands.config;
 
 import ar.edu.itba.cep.executor.dtos.ExecutionRequestDto;
 import ar.edu.itba.cep.executor.dtos.ExecutionResponseDto;
+import ar.edu.itba.cep.executor_service.commands.CancelExecutionDto;
+import ar.edu.itba.cep.executor_service.commands.CommandTopicsAdministrator;
+import ar.edu.itba.cep.executor_service.commands.CommandsRouting;
+import ar.edu.itba.cep.executor_service.commands.SlowOrFailedExecutionsSpanHandler;
+import brave.handler.FinishedSpanHandler;
 import com.bellotapps.the_messenger.commons.Message;
 import com.bellotapps.the_messenger.commons.payload.PayloadDeserializer;
 import com.bellotapps.the_messenger.commons.payload.PayloadSerializer;
@@ -13,11 +18,16 @@ import com.bellotapps.the_messenger.producer.MessageProducer;
 import com.bellotapps.the_messenger.producer.basic_factories.GenericMessageBuilderFactory;
 import com.bellotapps.the_messenger.transport.json.jackson.JacksonMessage;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
+import zipkin2.Span;
+import zipkin2.reporter.Reporter;
 
 /**
  * Configuration class for the Kafka command message handling module.
@@ -28,6 +38,9 @@ import org.springframework.kafka.core.KafkaTemplate;
 })
 @EnableConfigurationProperties({
         ExecutionResponseHandlerProperties.class,
+        ExecutionTracingProperties.class,
+        ExecutionCancellationProperties.class,
+        CommandsRoutingProperties.class,
 })
 public class KafkaCommandsHandlersConfig {
 
@@ -47,6 +60,16 @@ public class KafkaCommandsHandlersConfig {
         return new JacksonJsonPayloadDeserializer<>(new ObjectMapper(), ExecutionRequestDto.class);
     }
 
+    /**
+     * Creates a bean of {@link PayloadDeserializer} of {@link CancelExecutionDto}.
+     *
+     * @return A bean of {@link JacksonJsonPayloadDeserializer} of {@link CancelExecutionDto}.
+     */
+    @Bean
+    public PayloadDeserializer<CancelExecutionDto> cancelExecutionDtoPayloadDeserializer() {
+        return new JacksonJsonPayloadDeserializer<>(new ObjectMapper(), CancelExecutionDto.class);
+    }
+
     /**
      * Creates a bean of {@link PayloadSerializer} of {@link ExecutionRequestDto}.
      *
@@ -84,4 +107,54 @@ public class KafkaCommandsHandlersConfig {
                 JacksonMessage::new
         );
     }
+
+    /**
+     * Creates a bean of {@link CommandTopicsAdministrator}, which creates the command topics
+     * and monitors their lag.
+     *
+     * @param commandsRouting The {@link CommandsRouting} that defines the topics.
+     * @param kafkaAdmin      The {@link KafkaAdmin} that holds the configuration used to access the cluster.
+     * @param consumerFactory The {@link ConsumerFactory} used to read the end offsets of the topics.
+     * @param meterRegistry   The {@link MeterRegistry} in which metrics are registered.
+     * @param properties      An instance of {@link CommandsRoutingProperties} with values to configure the bean.
+     * @return A bean of {@link CommandTopicsAdministrator}.
+     */
+    @Bean
+    public CommandTopicsAdministrator commandTopicsAdministrator(
+            final CommandsRouting commandsRouting,
+            final KafkaAdmin kafkaAdmin,
+            final ConsumerFactory<?, ?> consumerFactory,
+            final MeterRegistry meterRegistry,
+            final CommandsRoutingProperties properties) {
+        return new CommandTopicsAdministrator(
+                commandsRouting,
+                properties.isCreateTopics(),
+                properties.getPartitions(),
+                properties.getReplicationFactor(),
+                properties.getLagSampleInterval(),
+                kafkaAdmin,
+                consumerFactory,
+                meterRegistry
+        );
+    }
+
+    /**
+     * Creates a bean of {@link SlowOrFailedExecutionsSpanHandler}, which makes sure slow or failed executions
+     * are always traced.
+     *
+     * @param reporter   The {@link Reporter} to which spans of slow or failed executions are sent.
+     * @param properties An instance of {@link ExecutionTracingProperties} with values to configure the handler.
+     * @return A bean of {@link SlowOrFailedExecutionsSpanHandler} (i.e a {@link FinishedSpanHandler}).
+     */
+    @Bean
+    public SlowOrFailedExecutionsSpanHandler slowOrFailedExecutionsSpanHandler(
+            final Reporter<Span> reporter,
+            final ExecutionTracingProperties properties) {
+        return new SlowOrFailedExecutionsSpanHandler(
+                reporter,
+                properties.getSlowExecutionThreshold(),
+                properties.getMaxBufferedTraces(),
+                properties.getMaxBufferedTraceAge()
+        );
+    }
 }
@@ -0,0 +1,385 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limits the amount of executions that can be performed concurrently.
+ * The limit is adapted periodically in an AIMD (additive increase, multiplicative decrease) fashion:
+ * it is decreased when the system is overloaded (i.e high load average, low available memory,
+ * or executions being inflated by CPU contention), and it is increased when there is demand and the system is healthy.
+ * This keeps execution times stable (they are used to evaluate efficiency and performance of code),
+ * while still using the node as much as possible.
+ * Run-time inflation is measured as the time runnable tasks wait for a CPU (instead of comparing executions
+ * wall time), so programs that run for long, or that sleep, are not taken as contention.
+ * As the load average and the execution durations change slowly, the limit is decreased at most once per cooldown,
+ * and only once a window of executions (as many as the limit) finished since the previous decrease.
+ */
+public class AdaptiveConcurrencyLimiter implements InitializingBean, DisposableBean {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    /**
+     * Factor by which the limit is multiplied when decreasing it.
+     */
+    private final static double DECREASE_FACTOR = 0.75;
+    /**
+     * Smoothing factor of the moving average of execution durations.
+     */
+    private final static double DURATION_SMOOTHING = 0.05;
+
+
+    /**
+     * The min. value the limit can take.
+     */
+    private final int minLimit;
+    /**
+     * The max. value the limit can take.
+     */
+    private final int maxLimit;
+    /**
+     * Time (in milliseconds) between limit updates.
+     */
+    private final long updateInterval;
+    /**
+     * The load average per processor above which the limit is decreased.
+     */
+    private final double maxLoadPerProcessor;
+    /**
+     * The available memory fraction below which the limit is decreased.
+     */
+    private final double minAvailableMemoryFraction;
+    /**
+     * The CPU pressure (i.e the fraction of time runnable tasks wait for a CPU) above which the limit is decreased.
+     */
+    private final double maxCpuPressure;
+    /**
+     * Min. time (in nanoseconds) between limit decreases.
+     */
+    private final long decreaseCooldown;
+    /**
+     * The {@link SystemLoadProbe} used to read the system load and memory pressure.
+     */
+    private final SystemLoadProbe systemLoadProbe;
+    /**
+     * The {@link MeterRegistry} in which metrics are registered.
+     */
+    private final MeterRegistry meterRegistry;
+    /**
+     * The {@link ScheduledExecutorService} that periodically updates the limit.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Lock that guards the limiter state.
+     */
+    private final ReentrantLock lock;
+    /**
+     * {@link Condition} signaled when an execution can start.
+     */
+    private final Condition permitAvailable;
+
+    /**
+     * The current limit (kept as a double to allow the multiplicative decrease to accumulate).
+     */
+    private double limit;
+    /**
+     * The amount of executions being performed.
+     */
+    private int inFlight;
+    /**
+     * The amount of executions waiting to start.
+     */
+    private int waiting;
+    /**
+     * Moving average of execution durations, in nanoseconds.
+     */
+    private double averageDuration;
+    /**
+     * The amount of executions that finished since the last decrease.
+     */
+    private int finishedSinceDecrease;
+    /**
+     * The time (in nanoseconds, as returned by {@link System#nanoTime()}) of the last decrease.
+     */
+    private long lastDecreaseTime;
+
+
+    /**
+     * Constructor.
+     *
+     * @param initialLimit               The initial limit.
+     * @param minLimit                   The min. value the limit can take.
+     * @param maxLimit                   The max. value the limit can take.
+     * @param updateInterval             Time (in milliseconds) between limit updates.
+     * @param maxLoadPerProcessor        The load average per processor above which the limit is decreased.
+     * @param minAvailableMemoryFraction The available memory fraction below which the limit is decreased.
+     * @param maxCpuPressure             The CPU pressure (i.e the fraction of time runnable tasks wait for a CPU)
+     *                                   above which the limit is decreased.
+     * @param decreaseCooldown           Min. time (in milliseconds) between limit decreases.
+     * @param meterRegistry              The {@link MeterRegistry} in which metrics are registered.
+     */
+    public AdaptiveConcurrencyLimiter(
+            final int initialLimit,
+            final int minLimit,
+            final int maxLimit,
+            final long updateInterval,
+            final double maxLoadPerProcessor,
+            final double minAvailableMemoryFraction,
+            final double maxCpuPressure,
+            final long decreaseCooldown,
+            final MeterRegistry meterRegistry) {
+        Assert.isTrue(minLimit > 0, "The min. limit must be positive");
+        Assert.isTrue(maxLimit >= minLimit, "The max. limit must not be smaller than the min. limit");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.updateInterval = updateInterval;
+        this.maxLoadPerProcessor = maxLoadPerProcessor;
+        this.minAvailableMemoryFraction = minAvailableMemoryFraction;
+        this.maxCpuPressure = maxCpuPressure;
+        this.decreaseCooldown = TimeUnit.MILLISECONDS.toNanos(decreaseCooldown);
+        this.systemLoadProbe = new SystemLoadProbe();
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "concurrency-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lock = new ReentrantLock();
+        this.permitAvailable = lock.newCondition();
+        this.limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        this.inFlight = 0;
+        this.waiting = 0;
+        this.averageDuration = 0;
+        this.finishedSinceDecrease = 0;
+        this.lastDecreaseTime = System.nanoTime() - this.decreaseCooldown;
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        Gauge.builder("executor.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("The max. amount of executions that can be performed concurrently")
+                .register(meterRegistry);
+        Gauge.builder("executor.concurrency.in-flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("The amount of executions being performed")
+                .register(meterRegistry);
+        Gauge.builder("executor.concurrency.waiting", this, AdaptiveConcurrencyLimiter::getWaiting)
+                .description("The amount of executions waiting to start")
+                .register(meterRegistry);
+        scheduler.scheduleWithFixedDelay(this::updateLimit, updateInterval, updateInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+
+    /**
+     * Waits till an execution can start, till it is cancelled, or till the given {@code maxWait} elapses
+     * (waiting threads must be woken up with {@link #wakeUpWaiters()} to check the {@code cancelled} condition).
+     *
+     * @param cancelled Indicates whether the execution has been cancelled (and thus it must not wait anymore).
+     * @param maxWait   The max. time (in nanoseconds) to wait ({@link Long#MAX_VALUE} to wait without limit).
+     * @return {@code true} if the execution can start
+     * (and thus {@link #release(long)} must be called once it finishes),
+     * or {@code false} if it was cancelled or the max. wait elapsed.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     */
+    public boolean acquire(final BooleanSupplier cancelled, final long maxWait) throws InterruptedException {
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                var remaining = maxWait;
+                while (inFlight >= (int) limit) {
+                    if (cancelled.getAsBoolean() || remaining <= 0) {
+                        return false;
+                    }
+                    if (maxWait == Long.MAX_VALUE) {
+                        permitAvailable.await();
+                    } else {
+                        remaining = permitAvailable.awaitNanos(remaining);
+                    }
+                }
+            } finally {
+                waiting--;
+            }
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimates the time an execution that starts waiting now would wait till it can start,
+     * assuming that executions take the average duration.
+     *
+     * @return The estimated wait, in nanoseconds.
+     */
+    public long estimateWait() {
+        lock.lock();
+        try {
+            final var currentLimit = (int) limit;
+            if (inFlight < currentLimit) {
+                return 0;
+            }
+            // Executions ahead (i.e waiting, and those that must finish to get below the limit) are performed
+            // in batches of "limit" executions.
+            final var ahead = waiting + inFlight - currentLimit + 1;
+            return (long) (Math.ceil((double) ahead / currentLimit) * averageDuration);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up all the threads waiting to start an execution, so they can check whether it was cancelled.
+     */
+    public void wakeUpWaiters() {
+        lock.lock();
+        try {
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indicates that an execution has finished.
+     *
+     * @param duration The time (in nanoseconds) the execution took.
+     */
+    public void release(final long duration) {
+        lock.lock();
+        try {
+            inFlight--;
+            finishedSinceDecrease++;
+            averageDuration = averageDuration == 0
+                    ? duration
+                    : averageDuration + DURATION_SMOOTHING * (duration - averageDuration);
+            permitAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The current limit.
+     */
+    private double getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return The amount of executions being performed.
+     */
+    private double getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return The amount of executions waiting to start.
+     */
+    private double getWaiting() {
+        return waiting;
+    }
+
+    /**
+     * Updates the limit according to the system load, memory pressure and CPU contention.
+     * While overloaded, the limit is decreased only if it can be (see {@link #canDecrease(long)}),
+     * and it is never increased.
+     */
+    private void updateLimit() {
+        try {
+            final var overloadReason = overloadReason();
+            lock.lock();
+            try {
+                final var previous = (int) limit;
+                if (overloadReason != null) {
+                    final var now = System.nanoTime();
+                    if (!canDecrease(now)) {
+                        return;
+                    }
+                    limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                    lastDecreaseTime = now;
+                    finishedSinceDecrease = 0;
+                } else if (inFlight >= previous && waiting > 0) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+                final var current = (int) limit;
+                if (current == previous) {
+                    return;
+                }
+                final var direction = current > previous ? "increase" : "decrease";
+                final var reason = current > previous ? "demand" : overloadReason;
+                Counter.builder("executor.concurrency.limit.changes")
+                        .description("Changes of the concurrency limit")
+                        .tag("direction", direction)
+                        .tag("reason", reason)
+                        .register(meterRegistry)
+                        .increment();
+                LOGGER.debug("Concurrency limit {}d from {} to {} (reason: {})", direction, previous, current, reason);
+                permitAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } catch (final Throwable e) {
+            LOGGER.error("Could not update the concurrency limit", e); // Must not kill the scheduler
+        }
+    }
+
+    /**
+     * Indicates whether the limit can be decreased (i.e the cooldown elapsed since the last decrease,
+     * and a window of executions finished since then, so the signals reflect the current limit).
+     * Must be called while holding the lock.
+     *
+     * @param now The current time (in nanoseconds, as returned by {@link System#nanoTime()}).
+     * @return {@code true} if the limit can be decreased, or {@code false} otherwise.
+     */
+    private boolean canDecrease(final long now) {
+        return now - lastDecreaseTime >= decreaseCooldown && finishedSinceDecrease >= (int) limit;
+    }
+
+    /**
+     * Checks whether the system is overloaded, returning the reason if it is.
+     * The CPU pressure is always sampled, so each sample covers a single update interval.
+     *
+     * @return The reason why the system is overloaded, or {@code null} if it is not.
+     */
+    private String overloadReason() {
+        final var cpuPressure = systemLoadProbe.cpuPressure();
+        if (systemLoadProbe.availableMemoryFraction().stream().anyMatch(f -> f < minAvailableMemoryFraction)) {
+            return "memory";
+        }
+        if (systemLoadProbe.loadPerProcessor().stream().anyMatch(l -> l > maxLoadPerProcessor)) {
+            return "load";
+        }
+        if (cpuPressure.stream().anyMatch(p -> p > maxCpuPressure)) {
+            return "cpu-pressure";
+        }
+        return null;
+    }
+}
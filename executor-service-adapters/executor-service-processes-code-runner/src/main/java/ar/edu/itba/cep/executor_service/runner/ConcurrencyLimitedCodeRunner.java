@@ -0,0 +1,107 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import ar.edu.itba.cep.executor.models.ExecutionRequest;
+import ar.edu.itba.cep.executor.models.ExecutionResponse;
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancellation;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancelledException;
+import ar.edu.itba.cep.executor_service.models.ExecutionContext;
+import ar.edu.itba.cep.executor_service.models.ExecutionExpiredException;
+import ar.edu.itba.cep.executor_service.models.UnknownInputException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * A {@link CodeRunner} that limits the amount of executions that are performed concurrently by another
+ * {@link CodeRunner}, using an {@link AdaptiveConcurrencyLimiter}.
+ * Executions with a deadline only wait to start while it can still be met
+ * (given the duration expected by the {@link DeadlineCheckingCodeRunner} that performs them).
+ */
+public class ConcurrencyLimitedCodeRunner implements CodeRunner {
+
+    /**
+     * The {@link DeadlineCheckingCodeRunner} that actually performs the executions.
+     */
+    private final DeadlineCheckingCodeRunner delegate;
+    /**
+     * The {@link AdaptiveConcurrencyLimiter} that limits the amount of concurrent executions.
+     */
+    private final AdaptiveConcurrencyLimiter limiter;
+
+
+    /**
+     * Constructor.
+     *
+     * @param delegate The {@link DeadlineCheckingCodeRunner} that actually performs the executions.
+     * @param limiter  The {@link AdaptiveConcurrencyLimiter} that limits the amount of concurrent executions.
+     */
+    public ConcurrencyLimitedCodeRunner(
+            final DeadlineCheckingCodeRunner delegate,
+            final AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+
+    @Override
+    public ExecutionResponse processExecutionRequest(
+            final ExecutionRequest executionRequest,
+            final ExecutionContext executionContext)
+            throws IllegalArgumentException, UnknownInputException,
+                    ExecutionCancelledException, ExecutionExpiredException {
+        final long maxWait = executionContext.getDeadline()
+                .map(deadline -> computeMaxWait(executionRequest, deadline))
+                .orElse(Long.MAX_VALUE);
+        final boolean acquired;
+        try (final var ignored = executionContext.getCancellation()
+                .map(cancellation -> cancellation.onCancel(limiter::wakeUpWaiters))
+                .orElse(ExecutionCancellation.Registration.NONE)) {
+            acquired = limiter.acquire(executionContext::isCancelled, maxWait);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionFailedException("Interrupted while waiting to start the execution", e);
+        }
+        if (!acquired) {
+            if (executionContext.isCancelled()) {
+                throw new ExecutionCancelledException("The execution was cancelled while waiting to start");
+            }
+            throw new ExecutionExpiredException("The deadline cannot be met anymore while waiting to start", false);
+        }
+        final var start = System.nanoTime();
+        try {
+            return delegate.processExecutionRequest(executionRequest, executionContext);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the max. time an execution can wait to start and still meet its {@code deadline}, assuming that
+     * it takes the duration expected by the {@link DeadlineCheckingCodeRunner}.
+     *
+     * @param executionRequest The {@link ExecutionRequest} to be processed.
+     * @param deadline         The instant after which the result of the execution will not be read anymore.
+     * @return The max. time (in nanoseconds) the execution can wait to start.
+     * @throws ExecutionExpiredException If the deadline has passed,
+     *                                   or if it cannot be met given the estimated wait.
+     */
+    private long computeMaxWait(final ExecutionRequest executionRequest, final Instant deadline)
+            throws ExecutionExpiredException {
+        final var remaining = Duration.between(Instant.now(), deadline).toNanos();
+        if (remaining <= 0) {
+            throw new ExecutionExpiredException("The deadline has passed", true);
+        }
+        final var maxWait = remaining - delegate.expectedDuration(executionRequest);
+        if (limiter.estimateWait() > maxWait) {
+            throw new ExecutionExpiredException("The deadline cannot be met given the estimated wait", false);
+        }
+        return maxWait;
+    }
+
+    @Override
+    public Set<Language> getSupportedLanguages() {
+        return delegate.getSupportedLanguages();
+    }
+}
@@ -0,0 +1,127 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import ar.edu.itba.cep.executor.models.ExecutionRequest;
+import ar.edu.itba.cep.executor.models.ExecutionResponse;
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancelledException;
+import ar.edu.itba.cep.executor_service.models.ExecutionContext;
+import ar.edu.itba.cep.executor_service.models.ExecutionExpiredException;
+import ar.edu.itba.cep.executor_service.models.UnknownInputException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link CodeRunner} that does not perform (through another {@link CodeRunner}) the executions whose deadline
+ * has passed or cannot be met, assuming that they take the average duration of the executions of their language
+ * (bounded by the request's timeout, if any). Till an execution of a language finishes, its executions are
+ * expected to take the configured initial duration of the language or, if there is none, the request's timeout.
+ * It is always applied, so executions are shed whether or not they are limited by an
+ * {@link AdaptiveConcurrencyLimiter} (which also uses the expected duration to estimate how long they can wait).
+ * Note that the deadline is checked right before running: the time spent waiting till then (e.g in the commands
+ * topic, or in the limiter) is taken into account, but the wait of the requests queued behind is not estimated,
+ * so executions are only shed before starting to wait when the limiter is enabled.
+ */
+public class DeadlineCheckingCodeRunner implements CodeRunner {
+
+    /**
+     * Smoothing factor of the average execution durations (i.e the weight given to each new sample).
+     */
+    private final static double DURATION_SMOOTHING = 0.05;
+
+
+    /**
+     * The {@link CodeRunner} that actually performs the executions.
+     */
+    private final CodeRunner delegate;
+    /**
+     * The exponentially weighted moving average of the duration (in nanoseconds) of the executions of each
+     * {@link Language} (languages with no finished executions are not included).
+     */
+    private final Map<Language, Double> averageDurations;
+    /**
+     * The duration (in nanoseconds) expected for the executions of each {@link Language}
+     * till one of them finishes (languages with no initial duration are not included).
+     */
+    private final Map<Language, Long> initialExpectedDurations;
+
+
+    /**
+     * Constructor.
+     *
+     * @param delegate                 The {@link CodeRunner} that actually performs the executions.
+     * @param initialExpectedDurations The duration (in milliseconds) expected for the executions of each
+     *                                 {@link Language} till one of them finishes. Languages not included are
+     *                                 expected to take the request's timeout (if any) till then.
+     */
+    public DeadlineCheckingCodeRunner(final CodeRunner delegate, final Map<Language, Long> initialExpectedDurations) {
+        this.delegate = delegate;
+        this.averageDurations = new ConcurrentHashMap<>();
+        this.initialExpectedDurations = initialExpectedDurations.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(
+                        Map.Entry::getKey,
+                        entry -> TimeUnit.MILLISECONDS.toNanos(entry.getValue())
+                ));
+    }
+
+
+    @Override
+    public ExecutionResponse processExecutionRequest(
+            final ExecutionRequest executionRequest,
+            final ExecutionContext executionContext)
+            throws IllegalArgumentException, UnknownInputException,
+                    ExecutionCancelledException, ExecutionExpiredException {
+        final var deadline = executionContext.getDeadline();
+        if (deadline.isPresent()) {
+            final var remaining = Duration.between(Instant.now(), deadline.get()).toNanos();
+            if (remaining <= 0) {
+                throw new ExecutionExpiredException("The deadline has passed", true);
+            }
+            if (remaining < expectedDuration(executionRequest)) {
+                throw new ExecutionExpiredException("The deadline cannot be met given the expected duration", false);
+            }
+        }
+        final var start = System.nanoTime();
+        final var executionResponse = delegate.processExecutionRequest(executionRequest, executionContext);
+        // Only executions that finished are taken into account (i.e not the aborted ones)
+        averageDurations.merge(
+                executionRequest.getLanguage(),
+                (double) (System.nanoTime() - start),
+                (average, duration) -> average + DURATION_SMOOTHING * (duration - average)
+        );
+        return executionResponse;
+    }
+
+    @Override
+    public Set<Language> getSupportedLanguages() {
+        return delegate.getSupportedLanguages();
+    }
+
+    /**
+     * Returns how long the execution of the given {@code executionRequest} is expected to take
+     * (i.e the average duration of the executions of its language, bounded by its timeout, if any).
+     * If no execution of its language has finished yet, the initial duration of the language is used instead,
+     * or the request's timeout if there is none.
+     *
+     * @param executionRequest The {@link ExecutionRequest}.
+     * @return The expected duration (in nanoseconds),
+     * or {@code 0} if nothing is known about it (i.e no sample, no initial duration and no timeout).
+     */
+    public long expectedDuration(final ExecutionRequest executionRequest) {
+        final var language = executionRequest.getLanguage();
+        final var timeout = Optional.ofNullable(executionRequest.getTimeout()).map(TimeUnit.MILLISECONDS::toNanos);
+        final var expected = Optional.ofNullable(averageDurations.get(language))
+                .map(Double::longValue)
+                .or(() -> Optional.ofNullable(initialExpectedDurations.get(language)));
+        if (expected.isEmpty()) {
+            return timeout.orElse(0L);
+        }
+        return timeout.map(value -> Math.min(value, expected.get())).orElse(expected.get());
+    }
+}
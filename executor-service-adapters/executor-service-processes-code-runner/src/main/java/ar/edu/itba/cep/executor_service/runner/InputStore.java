@@ -0,0 +1,343 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import ar.edu.itba.cep.executor_service.models.StdinDigests;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * A disk-backed, size-bounded store of execution inputs (e.g standard inputs), addressed by their digest
+ * (see {@link StdinDigests}). This allows requests to reference big inputs that were already received,
+ * instead of carrying them each time.
+ * When the store exceeds its max. size, the least recently used inputs are evicted.
+ * Inputs are copied in and out of the store using {@link FileChannel} transfers,
+ * so the kernel copies the data without passing it through the JVM.
+ * As inputs of other requesters must not be readable by the executed programs, the directory must not be visible
+ * to them, and it is restricted to its owner (i.e the service user).
+ * If the directory cannot be set up (e.g the service user cannot create it), the store is disabled
+ * (i.e nothing is stored, and no input is found) instead of failing, so inputs must be sent inline.
+ */
+public class InputStore implements InitializingBean {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(InputStore.class);
+
+    /**
+     * Suffix of the files being written into the store (i.e not yet available).
+     */
+    private final static String TEMPORARY_FILE_SUFFIX = ".tmp";
+    /**
+     * Permissions of the directory in which inputs are stored (i.e only its owner can access it).
+     */
+    private final static Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+
+
+    /**
+     * The directory in which inputs are stored.
+     */
+    private final Path directory;
+    /**
+     * The max. amount of bytes that can be stored.
+     */
+    private final long maxSize;
+    /**
+     * The {@link MeterRegistry} in which metrics are registered.
+     */
+    private final MeterRegistry meterRegistry;
+    /**
+     * {@link Counter} of lookups of inputs that were in the store.
+     */
+    private final Counter hitsCounter;
+    /**
+     * {@link Counter} of lookups of inputs that were not in the store.
+     */
+    private final Counter missesCounter;
+    /**
+     * {@link Counter} of inputs evicted from the store.
+     */
+    private final Counter evictionsCounter;
+
+    /**
+     * The size of each stored input, by digest, in access order (i.e the least recently used input comes first).
+     */
+    private final LinkedHashMap<String, Long> entries;
+    /**
+     * The amount of bytes being stored.
+     */
+    private long size;
+    /**
+     * Indicates whether the directory could be set up (i.e inputs can be stored and looked up).
+     */
+    private volatile boolean available;
+
+
+    /**
+     * Constructor.
+     *
+     * @param directory     The directory in which inputs are stored.
+     * @param maxSize       The max. amount of bytes that can be stored.
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     */
+    public InputStore(final String directory, final long maxSize, final MeterRegistry meterRegistry) {
+        Assert.isTrue(maxSize > 0, "The max. size must be positive");
+        this.directory = Paths.get(directory);
+        this.maxSize = maxSize;
+        this.meterRegistry = meterRegistry;
+        this.hitsCounter = lookupsCounter("hit", meterRegistry);
+        this.missesCounter = lookupsCounter("miss", meterRegistry);
+        this.evictionsCounter = Counter.builder("executor.input-store.evictions")
+                .description("Inputs evicted from the input store")
+                .register(meterRegistry);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.size = 0;
+        this.available = false;
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            load();
+        } catch (final IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Could not set up the input store in {}. Inputs will not be stored", directory, e);
+            return;
+        }
+        available = true;
+        Gauge.builder("executor.input-store.size", this, InputStore::getSize)
+                .description("Amount of bytes in the input store")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("executor.input-store.entries", this, InputStore::getEntries)
+                .description("Amount of inputs in the input store")
+                .register(meterRegistry);
+        LOGGER.info("Input store loaded with {} inputs ({} bytes)", entries.size(), size);
+    }
+
+
+    /**
+     * Copies the input with the given {@code digest} into the given {@code target} file.
+     *
+     * @param digest The digest of the input.
+     * @param target The {@link File} into which the input is copied.
+     * @return {@code true} if the input was copied, or {@code false} if it is not in the store
+     * (or the store is disabled).
+     * @throws UncheckedIOException If any IO error occurs while copying the input.
+     */
+    public boolean copyTo(final String digest, final File target) throws UncheckedIOException {
+        if (!available || !StdinDigests.isValid(digest) || !touch(digest)) {
+            missesCounter.increment();
+            return false;
+        }
+        try {
+            transfer(directory.resolve(digest), target.toPath());
+            hitsCounter.increment();
+            return true;
+        } catch (final NoSuchFileException e) {
+            // Evicted between the lookup and the copy
+            missesCounter.increment();
+            return false;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e); // TODO: define proper exception
+        }
+    }
+
+    /**
+     * Stores the content of the given {@code source} file as the input with the given {@code digest}.
+     * Inputs bigger than the max. size of the store are not stored.
+     *
+     * @param digest The digest of the input.
+     * @param source The {@link File} with the input.
+     * @return {@code true} if the input is in the store (i.e it was stored, or it already was),
+     * or {@code false} if it could not be stored (e.g the store is disabled).
+     */
+    public boolean store(final String digest, final File source) {
+        Assert.isTrue(StdinDigests.isValid(digest), "Invalid digest");
+        if (!available) {
+            return false;
+        }
+        final var fileSize = source.length();
+        synchronized (this) {
+            if (fileSize > maxSize) {
+                return false;
+            }
+            if (touch(digest)) {
+                return true;
+            }
+        }
+        final var temporary = directory.resolve(digest + "." + UUID.randomUUID() + TEMPORARY_FILE_SUFFIX);
+        try {
+            transfer(source.toPath(), temporary);
+            Files.move(temporary, directory.resolve(digest), StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not store input {}", digest, e); // The input can still be sent inline
+            deleteQuietly(temporary);
+            return false;
+        }
+        synchronized (this) {
+            if (entries.putIfAbsent(digest, fileSize) == null) {
+                size += fileSize;
+                evict();
+            }
+            return entries.containsKey(digest); // Might have been evicted right away by bigger recent inputs
+        }
+    }
+
+
+    /**
+     * Sets up the directory in which inputs are stored (creating it if needed, and restricting it to its owner),
+     * and loads the inputs stored by a previous run (older ones first), discarding the incomplete ones.
+     *
+     * @throws IOException If any IO error occurs while setting up the directory or loading the inputs.
+     */
+    private void load() throws IOException {
+        Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+        Files.setPosixFilePermissions(directory, DIRECTORY_PERMISSIONS); // In case it already existed
+        final List<Path> files;
+        try (final var stream = Files.list(directory)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        files.sort(Comparator.comparing(InputStore::lastModified));
+        synchronized (this) {
+            for (final var file : files) {
+                final var name = file.getFileName().toString();
+                if (StdinDigests.isValid(name)) {
+                    final var fileSize = Files.size(file);
+                    entries.put(name, fileSize);
+                    size += fileSize;
+                } else {
+                    Files.deleteIfExists(file);
+                }
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Marks the input with the given {@code digest} as recently used.
+     *
+     * @param digest The digest of the input.
+     * @return {@code true} if the input is in the store, or {@code false} otherwise.
+     */
+    private synchronized boolean touch(final String digest) {
+        return entries.get(digest) != null;
+    }
+
+    /**
+     * Evicts the least recently used inputs till the store does not exceed its max. size.
+     */
+    private synchronized void evict() {
+        final var iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            deleteQuietly(directory.resolve(eldest.getKey()));
+            evictionsCounter.increment();
+        }
+    }
+
+    /**
+     * @return The amount of bytes being stored.
+     */
+    private synchronized double getSize() {
+        return size;
+    }
+
+    /**
+     * @return The amount of inputs being stored.
+     */
+    private synchronized double getEntries() {
+        return entries.size();
+    }
+
+
+    // ================================================================================================================
+    // Helpers
+    // ================================================================================================================
+
+    /**
+     * Copies the {@code source} file into the {@code target} file (which is created or truncated)
+     * using {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+     *
+     * @param source The {@link Path} of the file to be copied.
+     * @param target The {@link Path} of the file into which the source is copied.
+     * @throws IOException If any IO error occurs while copying.
+     */
+    private static void transfer(final Path source, final Path target) throws IOException {
+        try (final var in = FileChannel.open(source, StandardOpenOption.READ);
+             final var out = FileChannel.open(
+                     target,
+                     StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var length = in.size();
+            long position = 0;
+            while (position < length) {
+                position += in.transferTo(position, length - position, out);
+            }
+        }
+    }
+
+    /**
+     * Deletes the given {@code path}, logging (instead of throwing) any error.
+     *
+     * @param path The {@link Path} to be deleted.
+     */
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not delete {}", path, e);
+        }
+    }
+
+    /**
+     * Returns the last modified time of the given {@code path}, or {@code 0} if it could not be read.
+     *
+     * @param path The {@link Path} of the file.
+     * @return The last modified time, in milliseconds since epoch.
+     */
+    private static long lastModified(final Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).lastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Creates the {@link Counter} of lookups with the given {@code result}.
+     *
+     * @param result        The result of the lookups (i.e hit or miss).
+     * @param meterRegistry The {@link MeterRegistry} in which the {@link Counter} is registered.
+     * @return The created {@link Counter}.
+     */
+    private static Counter lookupsCounter(final String result, final MeterRegistry meterRegistry) {
+        return Counter.builder("executor.input-store.lookups")
+                .description("Lookups of inputs referenced by digest")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,468 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ProcessSpawner} that delegates the spawning of processes to a launcher process
+ * (i.e a small long-lived native process that forks and executes the commands on behalf of this process).
+ * This avoids forking the (large) service JVM for each execution, and spawned processes only get a minimal
+ * clean environment (instead of inheriting the service's one).
+ * Communication is performed through the launcher's standard streams.
+ * Check the {@code spawn-launcher.c} executor for more information on the protocol.
+ * Fields are NUL-terminated, so requests with fields containing a NUL character are rejected
+ * (as a {@link ProcessBuilder} does). If the launcher dies, it is restarted with the next request.
+ * Each launcher (i.e each generation) keeps its own pending requests, so only those are failed when it dies.
+ */
+public class LauncherProcessSpawner implements ProcessSpawner, InitializingBean, DisposableBean {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(LauncherProcessSpawner.class);
+
+    /**
+     * Names of the service's environment variables that are passed to spawned processes.
+     */
+    private final static List<String> INHERITED_ENV_VARIABLES = List.of("PATH", "HOME", "LANG", "TMPDIR");
+    /**
+     * Response type sent by the launcher when a process is started.
+     */
+    private final static String STARTED_RESPONSE = "S";
+    /**
+     * Response type sent by the launcher when a process could not be started.
+     */
+    private final static String FAILED_RESPONSE = "F";
+    /**
+     * Response type sent by the launcher when a process exits.
+     */
+    private final static String EXITED_RESPONSE = "E";
+    /**
+     * The max. amount of arguments of a command (must not be greater than the limit set by the launcher).
+     */
+    private final static int MAX_ARGUMENTS = 4096;
+    /**
+     * The max. amount of environment variables of a process (must not be greater than the limit set by the launcher).
+     */
+    private final static int MAX_ENV_VARIABLES = 1024;
+    /**
+     * Time (in milliseconds) between checks of whether a process that is being waited is still alive.
+     */
+    private final static long EXIT_POLL_INTERVAL = 1000;
+    /**
+     * Time (in milliseconds) given to the launcher to report the exit of a process that is not alive anymore.
+     */
+    private final static long EXIT_REPORT_GRACE = 5000;
+
+
+    /**
+     * The command used to start the launcher process.
+     */
+    private final String command;
+    /**
+     * Time given to the launcher to respond a spawn request.
+     */
+    private final long spawnTimeout;
+    /**
+     * The environment variables (taken from the service's environment) that are passed to all spawned processes.
+     */
+    private final Map<String, String> baseEnvironment;
+    /**
+     * {@link Timer} that records the time it takes to spawn a process.
+     */
+    private final Timer spawnLatencyTimer;
+    /**
+     * Generates identifiers for the requests sent to the launcher.
+     */
+    private final AtomicLong requestIds;
+
+    /**
+     * The current {@link Launcher} (i.e the one to which requests are sent).
+     */
+    private Launcher launcher;
+
+
+    /**
+     * Constructor.
+     *
+     * @param command       The command used to start the launcher process.
+     * @param spawnTimeout  Time given to the launcher to respond a spawn request.
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     */
+    public LauncherProcessSpawner(final String command, final long spawnTimeout, final MeterRegistry meterRegistry) {
+        this.command = command;
+        this.spawnTimeout = spawnTimeout;
+        this.baseEnvironment = new HashMap<>();
+        INHERITED_ENV_VARIABLES.forEach(name -> Optional.ofNullable(System.getenv(name))
+                .ifPresent(value -> baseEnvironment.put(name, value)));
+        this.spawnLatencyTimer = Timer.builder("executor.spawn.latency")
+                .description("Time it takes to spawn a runner command process")
+                .tag("mode", "launcher")
+                .register(meterRegistry);
+        this.requestIds = new AtomicLong();
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        start();
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+
+    @Override
+    public SpawnedProcess spawn(
+            final List<String> command,
+            final Map<String, String> environment,
+            final File directory,
+            final File stdin,
+            final File stdout,
+            final File stderr) throws IOException {
+        final var variables = new HashMap<>(baseEnvironment);
+        variables.putAll(environment);
+        final var fields = toFields(command, variables, directory, stdin, stdout, stderr);
+        final var id = requestIds.incrementAndGet();
+        final var spawned = new CompletableFuture<Long>();
+        final var exited = new CompletableFuture<Integer>();
+        final var start = System.nanoTime();
+        final var target = send(id, fields, spawned, exited);
+        try {
+            final var pid = spawned.get(spawnTimeout, TimeUnit.MILLISECONDS);
+            spawnLatencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return new LauncherSpawnedProcess(ProcessHandle.of(pid), exited);
+        } catch (final InterruptedException e) {
+            target.getPendingExits().remove(id);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the launcher");
+        } catch (final ExecutionException | TimeoutException e) {
+            target.getPendingExits().remove(id);
+            throw new IOException("The launcher could not spawn the process", e);
+        } finally {
+            target.getPendingSpawns().remove(id);
+        }
+    }
+
+
+    /**
+     * Starts a new launcher process.
+     *
+     * @throws ExecutionFailedException If the launcher could not be started.
+     */
+    private synchronized void start() throws ExecutionFailedException {
+        final Process process;
+        try {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        } catch (final IOException e) {
+            throw new ExecutionFailedException("Could not start the spawn launcher", e);
+        }
+        final var started = new Launcher(process);
+        final var responsesReader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
+        );
+        final var readerThread = new Thread(() -> readResponses(started, responsesReader), "spawn-launcher-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        this.launcher = started;
+        LOGGER.info("Spawn launcher started with pid {}", process.pid());
+    }
+
+    /**
+     * Stops the launcher process (closing its input, which makes it exit).
+     */
+    private synchronized void stop() {
+        if (launcher != null) {
+            try {
+                launcher.getRequestsStream().close();
+            } catch (final IOException e) {
+                launcher.getProcess().destroy();
+            }
+        }
+    }
+
+    /**
+     * Builds the fields of a spawn request, checking that they can be sent to the launcher
+     * (i.e they do not contain NUL characters, which terminate fields,
+     * and the amount of arguments and environment variables do not exceed the launcher's limits).
+     *
+     * @param command     The command to be executed (i.e the program and its arguments).
+     * @param environment Environment variables to be set to the process (including the base environment).
+     * @param directory   The working directory of the process.
+     * @param stdin       The {@link File} from where the process reads its standard input.
+     * @param stdout      The {@link File} where the process writes its standard output.
+     * @param stderr      The {@link File} where the process writes its standard error.
+     * @return The request fields (without the id).
+     * @throws IOException If any field cannot be sent to the launcher.
+     */
+    private static List<String> toFields(
+            final List<String> command,
+            final Map<String, String> environment,
+            final File directory,
+            final File stdin,
+            final File stdout,
+            final File stderr) throws IOException {
+        if (command.isEmpty() || command.size() > MAX_ARGUMENTS) {
+            throw new IOException("Invalid amount of arguments: " + command.size());
+        }
+        if (environment.size() > MAX_ENV_VARIABLES) {
+            throw new IOException("Invalid amount of environment variables: " + environment.size());
+        }
+        final var fields = new ArrayList<String>();
+        fields.add(directory.getAbsolutePath());
+        fields.add(stdin.getAbsolutePath());
+        fields.add(stdout.getAbsolutePath());
+        fields.add(stderr.getAbsolutePath());
+        fields.add(Integer.toString(command.size()));
+        fields.addAll(command);
+        fields.add(Integer.toString(environment.size()));
+        for (final var variable : environment.entrySet()) {
+            final var name = variable.getKey();
+            if (name.isEmpty() || name.indexOf('=') >= 0) {
+                throw new IOException("Invalid environment variable name: " + name);
+            }
+            fields.add(name + "=" + variable.getValue());
+        }
+        for (final var field : fields) {
+            if (field.indexOf('\0') >= 0) {
+                throw new IOException("Invalid NUL character in a spawn request field");
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Sends a spawn request to the launcher, restarting it if it is not alive.
+     * The given futures are registered as pending in the launcher to which the request is sent.
+     *
+     * @param id      The request's id.
+     * @param fields  The request fields (without the id), already checked.
+     * @param spawned The {@link CompletableFuture} to be completed with the pid of the spawned process.
+     * @param exited  The {@link CompletableFuture} to be completed with the exit code of the spawned process.
+     * @return The {@link Launcher} to which the request was sent.
+     * @throws IOException If the request could not be sent.
+     */
+    private synchronized Launcher send(
+            final long id,
+            final List<String> fields,
+            final CompletableFuture<Long> spawned,
+            final CompletableFuture<Integer> exited) throws IOException {
+        if (!launcher.getProcess().isAlive()) {
+            LOGGER.warn("The spawn launcher is not alive. Restarting it...");
+            start();
+        }
+        final var target = launcher;
+        target.getPendingSpawns().put(id, spawned);
+        target.getPendingExits().put(id, exited);
+        try {
+            final var requestsStream = target.getRequestsStream();
+            requestsStream.write(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+            requestsStream.write(0);
+            for (final var field : fields) {
+                requestsStream.write(field.getBytes(StandardCharsets.UTF_8));
+                requestsStream.write(0);
+            }
+            requestsStream.flush();
+        } catch (final IOException e) {
+            target.getPendingSpawns().remove(id);
+            target.getPendingExits().remove(id);
+            throw e;
+        }
+        return target;
+    }
+
+    /**
+     * Reads the responses sent by the given {@code launcher}, completing its pending futures.
+     * Returns when the launcher closes its output (i.e when it dies), failing the futures that are still pending
+     * (only those of the given launcher, as requests sent to a restarted one are not affected).
+     *
+     * @param launcher The {@link Launcher} whose responses are read.
+     * @param reader   The {@link BufferedReader} from where responses are read.
+     */
+    private static void readResponses(final Launcher launcher, final BufferedReader reader) {
+        final var pendingSpawns = launcher.getPendingSpawns();
+        final var pendingExits = launcher.getPendingExits();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final var parts = line.split(" ");
+                if (parts.length != 3) {
+                    LOGGER.warn("An unexpected response ({}) was received from the spawn launcher", line);
+                    continue;
+                }
+                final var id = Long.parseLong(parts[1]);
+                final var value = Long.parseLong(parts[2]);
+                switch (parts[0]) {
+                    case STARTED_RESPONSE:
+                        Optional.ofNullable(pendingSpawns.get(id)).ifPresent(future -> future.complete(value));
+                        break;
+                    case FAILED_RESPONSE:
+                        final var exception = new IOException("The launcher could not spawn the process (errno "
+                                + value + ")");
+                        Optional.ofNullable(pendingSpawns.get(id))
+                                .ifPresent(future -> future.completeExceptionally(exception));
+                        break;
+                    case EXITED_RESPONSE:
+                        Optional.ofNullable(pendingExits.remove(id))
+                                .ifPresent(future -> future.complete((int) value));
+                        break;
+                    default:
+                        LOGGER.warn("An unexpected response ({}) was received from the spawn launcher", line);
+                }
+            }
+        } catch (final IOException | NumberFormatException e) {
+            LOGGER.error("Could not read from the spawn launcher", e);
+        }
+        // The launcher is dead. Nothing else will be received, so fail everything is waiting for it.
+        launcher.getProcess().destroy(); // In case it closed its output but is still alive (e.g a protocol error)
+        final var exception = new ExecutionFailedException("The spawn launcher died");
+        pendingSpawns.values().forEach(future -> future.completeExceptionally(exception));
+        pendingExits.values().forEach(future -> future.completeExceptionally(exception));
+    }
+
+
+    /**
+     * A launcher process (i.e a generation of the launcher), together with its pending requests.
+     */
+    private static final class Launcher {
+
+        /**
+         * The launcher {@link Process}.
+         */
+        private final Process process;
+        /**
+         * The {@link OutputStream} used to send requests to the launcher.
+         */
+        private final OutputStream requestsStream;
+        /**
+         * Holds the {@link CompletableFuture}s that are completed with the pid of the spawned process,
+         * by request id.
+         */
+        private final Map<Long, CompletableFuture<Long>> pendingSpawns;
+        /**
+         * Holds the {@link CompletableFuture}s that are completed with the exit code of the spawned process,
+         * by request id.
+         */
+        private final Map<Long, CompletableFuture<Integer>> pendingExits;
+
+
+        /**
+         * Constructor.
+         *
+         * @param process The launcher {@link Process}.
+         */
+        private Launcher(final Process process) {
+            this.process = process;
+            this.requestsStream = new BufferedOutputStream(process.getOutputStream());
+            this.pendingSpawns = new ConcurrentHashMap<>();
+            this.pendingExits = new ConcurrentHashMap<>();
+        }
+
+
+        /**
+         * @return The launcher {@link Process}.
+         */
+        private Process getProcess() {
+            return process;
+        }
+
+        /**
+         * @return The {@link OutputStream} used to send requests to the launcher.
+         */
+        private OutputStream getRequestsStream() {
+            return requestsStream;
+        }
+
+        /**
+         * @return The {@link CompletableFuture}s that are completed with the pid of the spawned process,
+         * by request id.
+         */
+        private Map<Long, CompletableFuture<Long>> getPendingSpawns() {
+            return pendingSpawns;
+        }
+
+        /**
+         * @return The {@link CompletableFuture}s that are completed with the exit code of the spawned process,
+         * by request id.
+         */
+        private Map<Long, CompletableFuture<Integer>> getPendingExits() {
+            return pendingExits;
+        }
+    }
+
+
+    /**
+     * A {@link SpawnedProcess} spawned by the launcher.
+     */
+    private static final class LauncherSpawnedProcess implements SpawnedProcess {
+
+        /**
+         * The {@link ProcessHandle} of the process (taken when spawned, so it does not match a reused pid),
+         * or empty if the process already finished.
+         */
+        private final Optional<ProcessHandle> handle;
+        /**
+         * A {@link CompletableFuture} that is completed with the exit code of the process.
+         */
+        private final CompletableFuture<Integer> exitCode;
+
+
+        /**
+         * Constructor.
+         *
+         * @param handle   The {@link ProcessHandle} of the process, or empty if the process already finished.
+         * @param exitCode A {@link CompletableFuture} that is completed with the exit code of the process.
+         */
+        private LauncherSpawnedProcess(
+                final Optional<ProcessHandle> handle,
+                final CompletableFuture<Integer> exitCode) {
+            this.handle = handle;
+            this.exitCode = exitCode;
+        }
+
+
+        @Override
+        public Optional<ProcessHandle> toHandle() {
+            return handle.filter(ProcessHandle::isAlive);
+        }
+
+        /**
+         * {@inheritDoc}
+         * The wait is bounded: if the process is not alive anymore, and the launcher does not report its exit
+         * within a grace period (e.g the report was lost), an {@link ExecutionFailedException} is thrown.
+         */
+        @Override
+        public int waitFor() throws InterruptedException, ExecutionFailedException {
+            try {
+                while (true) {
+                    try {
+                        return exitCode.get(EXIT_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    } catch (final TimeoutException e) {
+                        if (handle.map(ProcessHandle::isAlive).orElse(false)) {
+                            continue;
+                        }
+                        try {
+                            return exitCode.get(EXIT_REPORT_GRACE, TimeUnit.MILLISECONDS);
+                        } catch (final TimeoutException ignored) {
+                            throw new ExecutionFailedException("The launcher did not report the exit of the process");
+                        }
+                    }
+                }
+            } catch (final ExecutionException e) {
+                throw new ExecutionFailedException("Could not get the exit code of the process", e.getCause());
+            }
+        }
+    }
+}
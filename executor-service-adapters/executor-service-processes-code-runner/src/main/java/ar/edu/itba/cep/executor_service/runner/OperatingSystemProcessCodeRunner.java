@@ -3,6 +3,14 @@ package ar.edu.itba.cep.executor_service.runner;
 import ar.edu.itba.cep.executor.models.ExecutionRequest;
 import ar.edu.itba.cep.executor.models.ExecutionResponse;
 import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancellation;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancelledException;
+import ar.edu.itba.cep.executor_service.models.ExecutionContext;
+import ar.edu.itba.cep.executor_service.models.ExecutionExpiredException;
+import ar.edu.itba.cep.executor_service.models.StdinDigests;
+import ar.edu.itba.cep.executor_service.models.StdinStorage;
+import ar.edu.itba.cep.executor_service.models.UnknownInputException;
+import brave.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -13,8 +21,10 @@ import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -42,6 +52,10 @@ public class OperatingSystemProcessCodeRunner implements CodeRunner, Initializin
      * The name of the environment variable in which the timeout is set.
      */
     private final static String TIMEOUT_ENV_VARIABLE = "TIMEOUT";
+    /**
+     * The name of the environment variable in which the compile timeout is set.
+     */
+    private final static String COMPILE_TIMEOUT_ENV_VARIABLE = "COMPILE_TIMEOUT";
     /**
      * The name of the environment variable in which the result file name is set.
      */
@@ -50,20 +64,50 @@ public class OperatingSystemProcessCodeRunner implements CodeRunner, Initializin
      * The name of the environment variable in which the main file name is set.
      */
     private final static String MAIN_FILE_NAME_ENV_VARIABLE = "MAIN_FILE_NAME";;
+    /**
+     * The name of the environment variable in which the timings file name is set.
+     */
+    private final static String TIMINGS_FILE_NAME_ENV_VARIABLE = "TIMINGS_FILE_NAME";
     /**
      * The name for the file where the execution result must be stored.
      */
     private final static String RESULT_FILE_NAME = "result"; // TODO: make this configurable?
+    /**
+     * The name for the file from where the program reads its standard input (when streams are redirected to files).
+     */
+    private final static String STDIN_FILE_NAME = "stdin";
+    /**
+     * The name for the file where the program writes its standard output (when streams are redirected to files).
+     */
+    private final static String STDOUT_FILE_NAME = "stdout";
+    /**
+     * The name for the file where the program writes its standard error (when streams are redirected to files).
+     */
+    private final static String STDERR_FILE_NAME = "stderr";
+    /**
+     * The name for the file where the runner command stores the times at which each of its phases starts and ends.
+     */
+    private final static String TIMINGS_FILE_NAME = "timings";
 
     /**
-     * Margin for the timeout to be added to the time Java will wait the sub-processes.
-     * This has nothing to do with the timeout given to the program being tested, but the time this process
-     * will wait any runner sub-processes till it consider the child to be timed-out.
+     * Mark stored in the timings file when compilation starts.
      */
-    private final static long GRACE_MARGIN = 10000; // TODO: make this configurable?
+    private final static String COMPILE_START_MARK = "COMPILE_START";
+    /**
+     * Mark stored in the timings file when compilation ends.
+     */
+    private final static String COMPILE_END_MARK = "COMPILE_END";
+    /**
+     * Mark stored in the timings file when the program starts running.
+     */
+    private final static String RUN_START_MARK = "RUN_START";
+    /**
+     * Mark stored in the timings file when the program ends running.
+     */
+    private final static String RUN_END_MARK = "RUN_END";
 
     /**
-     * Charset to be used to convert an {@link InputStream} into {@link String}s.
+     * Charset to be used to read and write the standard streams files of the program.
      */
     private static final Charset INPUT_STREAM_CHARSET = StandardCharsets.UTF_8; // TODO: make it a param?
 
@@ -78,6 +122,20 @@ public class OperatingSystemProcessCodeRunner implements CodeRunner, Initializin
      * This is different than the execution timeout, which is used to evaluate efficiency and performance of code.
      */
     private final long processTimeout;
+    /**
+     * Timeout given to the compilation phase (for compiled languages).
+     */
+    private final long compileTimeout;
+    /**
+     * Margin added to the compile and execution timeouts to get the deadline of the runner command process.
+     * This has nothing to do with the timeout given to the program being tested, but the time this process
+     * will wait any runner sub-processes till it consider the child to be timed-out.
+     */
+    private final long graceMargin;
+    /**
+     * Indicates whether working directories must be deleted once the execution finishes.
+     */
+    private final boolean deleteWorkingDirectories;
     /**
      * A {@link Map} containing the commands to be used for each {@link Language}.
      * This commands can be OS shell native commands, shell script files, executable files, custom programs, etc.
@@ -87,31 +145,84 @@ public class OperatingSystemProcessCodeRunner implements CodeRunner, Initializin
      * documentation</a> for more information on this.
      */
     private final Map<Language, String> commands;
+    /**
+     * The {@link RubyZygote} used to run {@link Language#RUBY} code,
+     * or {@code null} if Ruby code must be run with the corresponding command.
+     */
+    private final RubyZygote rubyZygote;
+    /**
+     * The {@link InputStore} in which standard inputs are stored to be referenced by later requests,
+     * or {@code null} if inputs must not be stored.
+     */
+    private final InputStore inputStore;
+    /**
+     * The {@link ProcessSpawner} used to spawn runner command processes.
+     */
+    private final ProcessSpawner processSpawner;
+    /**
+     * The {@link ProcessWatchdog} that enforces the deadline of runner command processes.
+     */
+    private final ProcessWatchdog watchdog;
+    /**
+     * The {@link PhaseTracer} used to trace the phases of each execution.
+     */
+    private final PhaseTracer phaseTracer;
 
 
     /**
-     * @param baseWorkingDir Base working directory for the runner.
-     *                       New directories will be created here where each execution will be performed.
-     * @param processTimeout Timeout to be given to the runner command process in case it hangs out.
-     *                       This is different than the execution timeout,
-     *                       which is used to evaluate efficiency and performance of code.
-     * @param commands       A {@link Map} containing the commands to be used for each {@link Language}.
-     *                       This commands can be OS shell native commands, shell script files, executable files,
-     *                       custom programs, etc.
-     *                       The only requirement is that a {@link Process} can be started using the values
-     *                       of the {@link Map}.
-     *                       See the execve <a href=http://man7.org/linux/man-pages/man2/execve.2.html>System Call
-     *                       Manual</a>, or the
-     *                       <a href=https://docs.microsoft.com/en-us/cpp/c-runtime-library/spawn-wspawn-functions>Spawn
-     *                       functions documentation</a> for more information on this.
+     * @param baseWorkingDir           Base working directory for the runner.
+     *                                 New directories will be created here where each execution will be performed.
+     * @param processTimeout           Timeout to be given to the runner command process in case it hangs out.
+     *                                 This is different than the execution timeout,
+     *                                 which is used to evaluate efficiency and performance of code.
+     * @param compileTimeout           Timeout given to the compilation phase (for compiled languages).
+     * @param graceMargin              Margin added to the compile and execution timeouts
+     *                                 to get the deadline of the runner command process.
+     * @param deleteWorkingDirectories Indicates whether working directories must be deleted
+     *                                 once the execution finishes.
+     * @param commands                 A {@link Map} containing the commands to be used for each {@link Language}.
+     *                                 This commands can be OS shell native commands, shell script files,
+     *                                 executable files, custom programs, etc.
+     *                                 The only requirement is that a {@link Process} can be started using the
+     *                                 values of the {@link Map}.
+     *                                 See the execve
+     *                                 <a href=http://man7.org/linux/man-pages/man2/execve.2.html>System Call
+     *                                 Manual</a>, or the
+     *                                 <a href=https://docs.microsoft.com/en-us/cpp/c-runtime-library/spawn-wspawn-functions>
+     *                                 Spawn functions documentation</a> for more information on this.
+     * @param rubyZygote               The {@link RubyZygote} used to run {@link Language#RUBY} code,
+     *                                 or {@code null} if Ruby code must be run with the corresponding command.
+     * @param inputStore               The {@link InputStore} in which standard inputs are stored to be referenced
+     *                                 by later requests, or {@code null} if inputs must not be stored.
+     * @param processSpawner           The {@link ProcessSpawner} used to spawn runner command processes.
+     * @param watchdog                 The {@link ProcessWatchdog} that enforces the deadline of runner command
+     *                                 processes.
+     * @param tracer                   The {@link Tracer} used to trace the phases of each execution,
+     *                                 or {@code null} if they must not be traced.
      */
     public OperatingSystemProcessCodeRunner(
             final String baseWorkingDir,
             final long processTimeout,
-            final Map<Language, String> commands) {
+            final long compileTimeout,
+            final long graceMargin,
+            final boolean deleteWorkingDirectories,
+            final Map<Language, String> commands,
+            final RubyZygote rubyZygote,
+            final InputStore inputStore,
+            final ProcessSpawner processSpawner,
+            final ProcessWatchdog watchdog,
+            final Tracer tracer) {
         this.baseWorkingDir = new File(baseWorkingDir);
         this.processTimeout = processTimeout;
+        this.compileTimeout = compileTimeout;
+        this.graceMargin = graceMargin;
+        this.deleteWorkingDirectories = deleteWorkingDirectories;
         this.commands = Collections.unmodifiableMap(commands);
+        this.rubyZygote = rubyZygote;
+        this.inputStore = inputStore;
+        this.processSpawner = processSpawner;
+        this.watchdog = watchdog;
+        this.phaseTracer = new PhaseTracer(tracer);
     }
 
     @Override
@@ -123,12 +234,34 @@ public class OperatingSystemProcessCodeRunner implements CodeRunner, Initializin
 
 
     @Override
-    public ExecutionResponse processExecutionRequest(final ExecutionRequest executionRequest)
-            throws IllegalArgumentException {
+    public ExecutionResponse processExecutionRequest(
+            final ExecutionRequest executionRequest,
+            final ExecutionContext executionContext)
+            throws IllegalArgumentException, UnknownInputException,
+                    ExecutionCancelledException, ExecutionExpiredException {
         Assert.notNull(executionRequest, "The execution request must not be null");
-        final var workingDirectory = createWorkingDirectory(); // TODO: should we lock the working directory?
-        return runCode(executionRequest, workingDirectory);
-        // TODO: should we delete the working directory?
+        Assert.notNull(executionContext, "The execution context must not be null");
+        final var workingDirectory = phaseTracer.trace(
+                "directory-setup",
+                this::createWorkingDirectory
+        ); // TODO: should we lock the working directory?
+        try {
+            return runCode(executionRequest, executionContext, workingDirectory);
+        } finally {
+            if (deleteWorkingDirectories) {
+                deleteWorkingDirectory(workingDirectory);
+            }
+        }
+    }
+
+    @Override
+    public Set<Language> getSupportedLanguages() {
+        final var languages = EnumSet.noneOf(Language.class);
+        languages.addAll(commands.keySet());
+        if (rubyZygote != null) {
+            languages.add(Language.RUBY);
+        }
+        return Collections.unmodifiableSet(languages);
     }
 
     /**
@@ -151,16 +284,45 @@ public class OperatingSystemProcessCodeRunner implements CodeRunner, Initializin
         throw new WorkingDirectoryException("Could not create the working directory"); // TODO: retry?
     }
 
+    /**
+     * Deletes the given {@code workingDirectory} together with all its content.
+     * Failures are logged (instead of thrown), as the execution has already finished.
+     *
+     * @param workingDirectory The {@link File} representing the working directory to be deleted.
+     */
+    private static void deleteWorkingDirectory(final File workingDirectory) {
+        try (final var paths = Files.walk(workingDirectory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()) // Children before their parents
+                    .map(Path::toFile)
+                    .filter(file -> !file.delete())
+                    .forEach(file -> LOGGER.warn("Could not delete {}", file));
+        } catch (final IOException | UncheckedIOException e) {
+            LOGGER.warn("Could not delete the working directory {}", workingDirectory, e);
+        }
+    }
+
     /**
      * Runs the code, using the inputs, language and timeout in the given {@link ExecutionRequest}
      * and returns the corresponding {@link ExecutionResponse}.
      *
      * @param request          The {@link ExecutionRequest} to be processed.
+     * @param context          The {@link ExecutionContext} of the request.
      * @param workingDirectory The {@link File} representing the working directory in which the process will run.
      * @return The {@link ExecutionResponse} that comes up from the execution.
+     * @throws UnknownInputException       If the request references a standard input that is not known.
+     * @throws ExecutionCancelledException If the execution is cancelled.
+     * @throws ExecutionExpiredException   If the deadline of the execution passes before starting,
+     *                                     or while running (in which case the process is killed).
      */
-    private ExecutionResponse runCode(final ExecutionRequest request, final File workingDirectory) {
+    private ExecutionResponse runCode(
+            final ExecutionRequest request,
+            final ExecutionContext context,
+            final File workingDirectory)
+            throws UnknownInputException, ExecutionCancelledException, ExecutionExpiredException {
         final var language = request.getLanguage();
+        if (language == Language.RUBY && rubyZygote != null) {
+            return runWithRubyZygote(request, context, workingDirectory);
+        }
         final var program = Optional
                 .ofNullable(commands.get(language))
                 .orElseThrow(() -> new RuntimeException("No command for language " + language));
@@ -173,55 +335,276 @@ public class OperatingSystemProcessCodeRunner implements CodeRunner, Initializin
         command.add(program);
         command.addAll(request.getProgramArguments());
 
-        final var processBuilder = new ProcessBuilder()
-                .directory(workingDirectory)
-                .command(command);
-        final var environment = processBuilder.environment();
+        final var environment = new HashMap<String, String>();
         environment.put(CODE_ENV_VARIABLE, request.getCode());
         environment.put(COMPILER_FLAGS_ENV_VARIABLE, Optional.ofNullable(request.getCompilerFlags()).orElse(""));
         environment.put(TIMEOUT_ENV_VARIABLE, Double.toString(executionTimeout / 1000d)); // TODO: BigDecimal?
+        environment.put(COMPILE_TIMEOUT_ENV_VARIABLE, Double.toString(compileTimeout / 1000d));
         environment.put(RESULT_FILE_NAME_ENV_VARIABLE, RESULT_FILE_NAME);
         environment.put(
                 MAIN_FILE_NAME_ENV_VARIABLE,
                 Optional.ofNullable(request.getMainFileName()).filter(StringUtils::hasText).orElse("")
         );
+        environment.put(TIMINGS_FILE_NAME_ENV_VARIABLE, TIMINGS_FILE_NAME);
 
-        final var processTimeout = Math.max(executionTimeout, this.processTimeout) + GRACE_MARGIN;
+        final var stdin = new File(workingDirectory, STDIN_FILE_NAME);
+        final var stdout = new File(workingDirectory, STDOUT_FILE_NAME);
+        final var stderr = new File(workingDirectory, STDERR_FILE_NAME);
+        final var processDeadline = compileTimeout + executionTimeout + graceMargin;
         try {
-            final var process = processBuilder.start(); // Start the process.
-            writeLines(request.getStdin(), process.getOutputStream()); // Send stdin in the request to the process.
-            final var finished = executionHasCompleted(process, processTimeout); // Wait till finish.
+            prepareStdin(request, context, stdin);
+            checkNotCancelled(context);
+            checkNotExpired(context);
+            // The process is killed once its deadline or the execution's one (if sooner) is reached.
+            // The program keeps its timeout, so it is not reported as timed out if killed because of the latter.
+            final var watchdogDeadline = Math.min(processDeadline, timeLeft(context));
+            final var process = processSpawner
+                    .spawn(command, environment, workingDirectory, stdin, stdout, stderr); // Start the process.
+            final int exitCode;
+            final boolean finished;
+            try (final var watch = process.toHandle()
+                    .map(handle -> watchdog.watch(handle, watchdogDeadline))
+                    .orElseGet(watchdog::unwatched);
+                 final var ignored = context.getCancellation()
+                         .map(cancellation -> cancellation.onCancel(watch::cancel)) // Kill it if cancelled
+                         .orElse(ExecutionCancellation.Registration.NONE)) {
+                exitCode = phaseTracer.trace("process", () -> {
+                    // Wait till finish (the watchdog kills it if the deadline is reached).
+                    final var code = waitFor(process);
+                    recordScriptPhases(workingDirectory);
+                    return code;
+                });
+                if (watch.hasBeenCancelled()) {
+                    throw new ExecutionCancelledException("The execution was cancelled while running");
+                }
+                if (watch.hasTimedOut() && watchdogDeadline < processDeadline) {
+                    throw new ExecutionExpiredException("The deadline passed while running", true);
+                }
+                finished = !watch.hasTimedOut();
+            }
             // Build the corresponding response.
-            return new ExecutionResponse(
+            return phaseTracer.trace("output-capture", () -> new ExecutionResponse(
                     finished ? retrieveResult(workingDirectory) : ExecutionResponse.ExecutionResult.TIMEOUT,
-                    process.exitValue(),
-                    readLines(process.getInputStream()),
-                    readLines(process.getErrorStream())
+                    exitCode,
+                    readLines(stdout),
+                    readLines(stderr)
+            ));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("The execution failed unexpectedly", e); // TODO: define proper exception
+        }
+    }
+
+    /**
+     * Runs the code using the {@link RubyZygote}, using the inputs and timeout in the given {@link ExecutionRequest},
+     * and returns the corresponding {@link ExecutionResponse}.
+     * The standard streams of the program are redirected to files in the given {@code workingDirectory}.
+     *
+     * @param request          The {@link ExecutionRequest} to be processed.
+     * @param context          The {@link ExecutionContext} of the request.
+     * @param workingDirectory The {@link File} representing the working directory in which the program will run.
+     * @return The {@link ExecutionResponse} that comes up from the execution.
+     * @throws UnknownInputException       If the request references a standard input that is not known.
+     * @throws ExecutionCancelledException If the execution is cancelled
+     *                                     (in which case the zygote is told to kill the program if running).
+     * @throws ExecutionExpiredException   If the deadline of the execution passes
+     *                                     (in which case the program is killed if running).
+     * @throws ExecutionFailedException    If the zygote could not run the code, or it did not respond in time.
+     */
+    private ExecutionResponse runWithRubyZygote(
+            final ExecutionRequest request,
+            final ExecutionContext context,
+            final File workingDirectory)
+            throws UnknownInputException, ExecutionCancelledException, ExecutionExpiredException {
+        final var executionTimeout = Optional.ofNullable(request.getTimeout()).orElse(this.processTimeout);
+        final var stdin = new File(workingDirectory, STDIN_FILE_NAME);
+        final var stdout = new File(workingDirectory, STDOUT_FILE_NAME);
+        final var stderr = new File(workingDirectory, STDERR_FILE_NAME);
+        final var processDeadline = executionTimeout + graceMargin;
+        try {
+            prepareStdin(request, context, stdin);
+            checkNotCancelled(context);
+            checkNotExpired(context);
+            // The program is killed once its deadline or the execution's one (if sooner) is reached,
+            // keeping its timeout (as with spawned processes).
+            final var zygoteDeadline = Math.min(processDeadline, timeLeft(context));
+            final var zygoteRequest = new RubyZygote.Request(
+                    rubyZygote.nextRequestId(),
+                    workingDirectory.getAbsolutePath(),
+                    request.getCode(),
+                    Optional.ofNullable(request.getMainFileName()).filter(StringUtils::hasText).orElse(""),
+                    request.getProgramArguments(),
+                    executionTimeout / 1000d,
+                    RESULT_FILE_NAME,
+                    stdin.getAbsolutePath(),
+                    stdout.getAbsolutePath(),
+                    stderr.getAbsolutePath()
             );
+            final OptionalInt exitCode;
+            try (final var ignored = context.getCancellation()
+                    .map(cancellation -> cancellation.onCancel(() -> rubyZygote.kill(zygoteRequest.getId())))
+                    .orElse(ExecutionCancellation.Registration.NONE)) {
+                checkNotCancelled(context); // Cancelled before the kill could be requested
+                exitCode = phaseTracer.trace("run", () -> rubyZygote.run(zygoteRequest, zygoteDeadline));
+            }
+            if (context.isCancelled()) {
+                throw new ExecutionCancelledException("The execution was cancelled while running");
+            }
+            if (exitCode.isEmpty()) {
+                if (zygoteDeadline < processDeadline) {
+                    throw new ExecutionExpiredException("The deadline passed while running", true);
+                }
+                throw new ExecutionFailedException("The Ruby zygote did not respond in time");
+            }
+            return phaseTracer.trace("output-capture", () -> new ExecutionResponse(
+                    retrieveResult(workingDirectory),
+                    exitCode.getAsInt(),
+                    readLines(stdout),
+                    readLines(stderr)
+            ));
         } catch (final IOException e) {
             throw new UncheckedIOException("The execution failed unexpectedly", e); // TODO: define proper exception
         }
     }
 
 
+    /**
+     * Writes the standard input of the program into the given {@code stdin} file.
+     * If the request includes its standard input, it is written into the file (and stored in the {@link InputStore},
+     * if the context has a {@link StdinStorage}). Otherwise, if the context has a digest, the referenced standard
+     * input is copied from the {@link InputStore}. If none of them, the file is left empty (i.e the program reads EOF).
+     * The {@link StdinStorage} (if any) is told the digest only if the standard input ends up in the store.
+     *
+     * @param request The {@link ExecutionRequest} being processed.
+     * @param context The {@link ExecutionContext} of the request.
+     * @param stdin   The {@link File} from where the program reads its standard input.
+     * @throws IOException           If any IO error occurs while writing the file.
+     * @throws UnknownInputException If the request references a standard input that is not known.
+     */
+    private void prepareStdin(final ExecutionRequest request, final ExecutionContext context, final File stdin)
+            throws IOException, UnknownInputException {
+        final var digest = context.getStdinDigest();
+        if (!request.getStdin().isEmpty() || digest.isEmpty()) {
+            Files.write(stdin.toPath(), request.getStdin(), INPUT_STREAM_CHARSET);
+            if (inputStore != null && !request.getStdin().isEmpty()) {
+                context.getStdinStorage().ifPresent(storage -> {
+                    final var computed = StdinDigests.digest(request.getStdin());
+                    if (inputStore.store(computed, stdin)) {
+                        storage.stored(computed);
+                    }
+                });
+            }
+            return;
+        }
+        if (inputStore == null || !inputStore.copyTo(digest.get(), stdin)) {
+            throw new UnknownInputException(digest.get());
+        }
+        context.getStdinStorage().ifPresent(storage -> storage.stored(digest.get()));
+    }
+
+    /**
+     * Checks that the execution has not been cancelled.
+     *
+     * @param context The {@link ExecutionContext} of the execution.
+     * @throws ExecutionCancelledException If the execution has been cancelled.
+     */
+    private static void checkNotCancelled(final ExecutionContext context) throws ExecutionCancelledException {
+        if (context.isCancelled()) {
+            throw new ExecutionCancelledException("The execution was cancelled before starting");
+        }
+    }
+
+    /**
+     * Checks that the deadline of the execution has not passed.
+     *
+     * @param context The {@link ExecutionContext} of the execution.
+     * @throws ExecutionExpiredException If the deadline of the execution has passed.
+     */
+    private static void checkNotExpired(final ExecutionContext context) throws ExecutionExpiredException {
+        if (context.isExpired()) {
+            throw new ExecutionExpiredException("The deadline passed before starting", true);
+        }
+    }
+
+    /**
+     * Returns the time left till the deadline of the execution, as there is no point in running once the result
+     * will not be read anymore.
+     *
+     * @param context The {@link ExecutionContext} of the execution.
+     * @return The time left (in milliseconds), or {@link Long#MAX_VALUE} if the execution has no deadline.
+     */
+    private static long timeLeft(final ExecutionContext context) {
+        return context.getDeadline()
+                .map(deadline -> Math.max(0, Duration.between(Instant.now(), deadline).toMillis()))
+                .orElse(Long.MAX_VALUE);
+    }
+
+    /**
+     * Records the compile and run phases of the runner command,
+     * according to the marks it stored in the timings file in the given {@code workingDirectory}.
+     * Phases that were started but not ended (e.g the command failed) are considered to end now.
+     *
+     * @param workingDirectory The {@link File} representing the working directory in which the process has run.
+     */
+    private void recordScriptPhases(final File workingDirectory) {
+        if (!phaseTracer.isEnabled()) {
+            return;
+        }
+        final var now = PhaseTracer.nowMicros();
+        final var marks = readTimingMarks(workingDirectory);
+        Optional.ofNullable(marks.get(COMPILE_START_MARK)).ifPresent(start -> phaseTracer.record(
+                "compile",
+                start,
+                Optional.ofNullable(marks.get(COMPILE_END_MARK))
+                        .or(() -> Optional.ofNullable(marks.get(RUN_START_MARK)))
+                        .orElse(now)
+        ));
+        Optional.ofNullable(marks.get(RUN_START_MARK)).ifPresent(start -> phaseTracer.record(
+                "run",
+                start,
+                Optional.ofNullable(marks.get(RUN_END_MARK)).orElse(now)
+        ));
+    }
+
+
     // ================================================================================================================
     // Helpers
     // ================================================================================================================
 
     /**
-     * Indicates whether the given {@code process} finishes before the given {@code timeout} elapses.
+     * Reads the marks stored by the runner command in the timings file in the given {@code workingDirectory}.
+     * Each line of the file contains a mark and the time (in microseconds since epoch) at which it was stored.
+     *
+     * @param workingDirectory The {@link File} representing the working directory in which the process has run.
+     * @return A {@link Map} holding the time of each mark (empty if the file could not be read).
+     */
+    private static Map<String, Long> readTimingMarks(final File workingDirectory) {
+        final var timingsPath = new File(workingDirectory, TIMINGS_FILE_NAME).toPath();
+        try (final var lines = Files.lines(timingsPath)) {
+            return lines
+                    .map(line -> line.trim().split("\\s+"))
+                    .filter(parts -> parts.length == 2 && parts[1].matches("\\d+"))
+                    .collect(Collectors.toMap(parts -> parts[0], parts -> Long.parseLong(parts[1]), (a, b) -> b));
+        } catch (final IOException | UncheckedIOException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Waits till the given {@code process} finishes.
+     * If interrupted while waiting, the process (together with its descendants) is killed.
      *
-     * @param process The {@link Process} to be checked.
-     * @param timeout The time given to the process to complete.
-     * @return {@code true} if the process finishes before the timeout elapses, or {@code false} otherwise.
+     * @param process The {@link SpawnedProcess} to be waited.
+     * @return The exit code of the process.
+     * @throws ExecutionFailedException If interrupted while waiting.
      */
-    private static boolean executionHasCompleted(final Process process, final long timeout) {
+    private int waitFor(final SpawnedProcess process) throws ExecutionFailedException {
         try {
-            // Wait till it finishes, or times out.
-            return process.waitFor(timeout, TimeUnit.MILLISECONDS);
+            return process.waitFor();
         } catch (final InterruptedException e) {
             LOGGER.warn("The execution was unexpectedly interrupted", e);
-            return false; // If interrupted, return false.
+            process.toHandle().ifPresent(watchdog::killTree);
+            Thread.currentThread().interrupt();
+            throw new ExecutionFailedException("The execution was interrupted", e);
         }
     }
 
@@ -231,44 +614,39 @@ public class OperatingSystemProcessCodeRunner implements CodeRunner, Initializin
      *
      * @param workingDirectory The {@link File} representing the working directory in which the process has run.
      * @return The {@link ExecutionResponse.ExecutionResult}
-     * @throws IOException If any IO error occurs while retrieving the value.
+     * @throws UncheckedIOException If any IO error occurs while retrieving the value.
      */
-    private static ExecutionResponse.ExecutionResult retrieveResult(final File workingDirectory) throws IOException {
+    private static ExecutionResponse.ExecutionResult retrieveResult(final File workingDirectory)
+            throws UncheckedIOException {
         final var resultPath = new File(workingDirectory, RESULT_FILE_NAME).toPath();
-        return Files.lines(resultPath).findFirst()
-                .flatMap(OperatingSystemProcessCodeRunner::fromString)
-                .orElse(ExecutionResponse.ExecutionResult.UNKNOWN_ERROR);
+        try (final var lines = Files.lines(resultPath)) {
+            return lines.findFirst()
+                    .flatMap(OperatingSystemProcessCodeRunner::fromString)
+                    .orElse(ExecutionResponse.ExecutionResult.UNKNOWN_ERROR);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e); // TODO: define proper exception
+        }
     }
 
     /**
-     * Converts the given {@code inputStream} into a {@link List} of {@link String},
-     * where each element of the {@link List} is a line in the {@link InputStream}.
+     * Reads the given {@code file} into a {@link List} of {@link String},
+     * where each element of the {@link List} is a line in the file.
+     * Malformed input (i.e bytes that are not valid in the charset, which programs are free to print)
+     * is replaced instead of failing.
      *
-     * @param inputStream The {@link InputStream} to be read.
+     * @param file The {@link File} to be read.
      * @return A {@link List} with the read lines.
-     * @throws UncheckedIOException If any {@link IOException} occurs while reading the {@link InputStream}.
+     * @throws UncheckedIOException If any {@link IOException} occurs while reading the file.
      */
-    private static List<String> readLines(final InputStream inputStream) throws UncheckedIOException {
-        try (final var bufferedReader = new BufferedReader(new InputStreamReader(inputStream, INPUT_STREAM_CHARSET))) {
+    private static List<String> readLines(final File file) throws UncheckedIOException {
+        try (final var bufferedReader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file.toPath()), INPUT_STREAM_CHARSET))) {
             return bufferedReader.lines().collect(Collectors.toList());
         } catch (final IOException e) {
             throw new UncheckedIOException(e); // TODO: define proper exception
         }
     }
 
-    /**
-     * Writes the {@link String}s in the given {@code lines} {@link List} as lines in the given {@code outputStream}.
-     *
-     * @param lines        The {@link String}s to be written as lines in the given {@code outputStream}.
-     * @param outputStream The {@link OutputStream} to which the lines will be written.
-     */
-    private static void writeLines(final List<String> lines, final OutputStream outputStream) {
-        try (final PrintWriter printWriter = new PrintWriter(outputStream, true)) {
-            // Write all lines. If the list is empty, EOF is sent.
-            lines.forEach(printWriter::println);
-        }
-    }
-
     /**
      * Returns the {@link ExecutionResponse.ExecutionResult} corresponding to the given {@code string},
      * wrapped in an {@link Optional}.
@@ -0,0 +1,85 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import brave.Span;
+import brave.Tracer;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Supplier;
+
+/**
+ * Helper that creates spans for the phases of an execution, as children of the current span.
+ * If no {@link Tracer} is available, phases are just performed.
+ */
+/* package */ final class PhaseTracer {
+
+    /**
+     * The {@link Tracer} used to create spans (might be {@code null}).
+     */
+    private final Tracer tracer;
+
+
+    /**
+     * Constructor.
+     *
+     * @param tracer The {@link Tracer} used to create spans (might be {@code null}).
+     */
+    /* package */ PhaseTracer(final Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+
+    /**
+     * @return {@code true} if phases are being traced, or {@code false} otherwise.
+     */
+    /* package */ boolean isEnabled() {
+        return tracer != null;
+    }
+
+    /**
+     * Performs the given {@code phase} within a span with the given {@code name}.
+     *
+     * @param name  The phase name.
+     * @param phase A {@link Supplier} that performs the phase.
+     * @param <T>   The concrete type of the phase result.
+     * @return The phase result.
+     */
+    /* package */ <T> T trace(final String name, final Supplier<T> phase) {
+        if (tracer == null) {
+            return phase.get();
+        }
+        final var span = tracer.nextSpan().name(name).start();
+        try (final var ignored = tracer.withSpanInScope(span)) {
+            return phase.get();
+        } catch (final RuntimeException | Error e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.finish();
+        }
+    }
+
+    /**
+     * Records an already finished phase as a child of the current span.
+     *
+     * @param name   The phase name.
+     * @param start  The time (in microseconds since epoch) at which the phase started.
+     * @param finish The time (in microseconds since epoch) at which the phase finished.
+     */
+    /* package */ void record(final String name, final long start, final long finish) {
+        if (tracer == null || finish < start) {
+            return;
+        }
+        final Span span = tracer.nextSpan().name(name);
+        if (!span.isNoop()) {
+            span.start(start).finish(finish);
+        }
+    }
+
+    /**
+     * @return The current time, in microseconds since epoch.
+     */
+    /* package */ static long nowMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+}
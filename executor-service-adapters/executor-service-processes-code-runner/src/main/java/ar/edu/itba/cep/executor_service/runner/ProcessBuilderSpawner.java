@@ -0,0 +1,68 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ProcessSpawner} that spawns processes using a {@link ProcessBuilder}
+ * (i.e forking this process, which inherits its environment to the spawned processes).
+ */
+public class ProcessBuilderSpawner implements ProcessSpawner {
+
+    /**
+     * {@link Timer} that records the time it takes to spawn a process.
+     */
+    private final Timer spawnLatencyTimer;
+
+
+    /**
+     * Constructor.
+     *
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     */
+    public ProcessBuilderSpawner(final MeterRegistry meterRegistry) {
+        this.spawnLatencyTimer = Timer.builder("executor.spawn.latency")
+                .description("Time it takes to spawn a runner command process")
+                .tag("mode", "process-builder")
+                .register(meterRegistry);
+    }
+
+
+    @Override
+    public SpawnedProcess spawn(
+            final List<String> command,
+            final Map<String, String> environment,
+            final File directory,
+            final File stdin,
+            final File stdout,
+            final File stderr) throws IOException {
+        final var processBuilder = new ProcessBuilder()
+                .directory(directory)
+                .command(command)
+                .redirectInput(stdin)
+                .redirectOutput(stdout)
+                .redirectError(stderr);
+        processBuilder.environment().putAll(environment);
+        final var start = System.nanoTime();
+        final var process = processBuilder.start();
+        spawnLatencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new SpawnedProcess() {
+            @Override
+            public Optional<ProcessHandle> toHandle() {
+                return Optional.of(process.toHandle());
+            }
+
+            @Override
+            public int waitFor() throws InterruptedException {
+                return process.waitFor();
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Component in charge of spawning runner command processes.
+ * The standard streams of the spawned processes are redirected from/to files.
+ */
+public interface ProcessSpawner {
+
+    /**
+     * Spawns a new process.
+     *
+     * @param command     The command to be executed (i.e the program and its arguments).
+     * @param environment Environment variables to be set to the process.
+     * @param directory   The working directory of the process.
+     * @param stdin       The {@link File} from where the process reads its standard input.
+     * @param stdout      The {@link File} where the process writes its standard output.
+     * @param stderr      The {@link File} where the process writes its standard error.
+     * @return The {@link SpawnedProcess}.
+     * @throws IOException If the process could not be spawned.
+     */
+    SpawnedProcess spawn(
+            final List<String> command,
+            final Map<String, String> environment,
+            final File directory,
+            final File stdin,
+            final File stdout,
+            final File stderr) throws IOException;
+}
@@ -0,0 +1,228 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Enforces deadlines on runner processes.
+ * All processes are watched by a single timer thread (instead of having a thread blocked waiting for each process).
+ * When a process reaches its deadline, it is killed together with all its descendants
+ * (e.g programs forked by the code being run).
+ */
+public class ProcessWatchdog implements DisposableBean {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ProcessWatchdog.class);
+
+
+    /**
+     * The timer that kills processes when they reach their deadline.
+     */
+    private final ScheduledThreadPoolExecutor timer;
+    /**
+     * {@link Counter} of processes that reached their deadline.
+     */
+    private final Counter timeoutsCounter;
+    /**
+     * {@link Counter} of processes killed (including descendants).
+     */
+    private final Counter killedProcessesCounter;
+    /**
+     * {@link Counter} of processes killed because their execution was cancelled.
+     */
+    private final Counter cancellationsCounter;
+    /**
+     * {@link Timer} that records, for each process killed because its execution was cancelled,
+     * the wall time that was left till its deadline. It is an upper bound of the wall time it could have kept
+     * running (as the deadline includes the compile timeout and the grace margin), not of the CPU time saved.
+     */
+    private final Timer remainingWallTimeTimer;
+
+
+    /**
+     * Constructor.
+     *
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     */
+    public ProcessWatchdog(final MeterRegistry meterRegistry) {
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final var thread = new Thread(runnable, "process-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true); // Finished processes must not be kept in the timer.
+        this.timeoutsCounter = Counter.builder("executor.watchdog.timeouts")
+                .description("Runner processes that reached their deadline")
+                .register(meterRegistry);
+        this.killedProcessesCounter = Counter.builder("executor.watchdog.killed.processes")
+                .description("Processes killed by the watchdog, including descendants of runner processes")
+                .register(meterRegistry);
+        this.cancellationsCounter = Counter.builder("executor.watchdog.cancellations")
+                .description("Runner processes killed because their execution was cancelled")
+                .register(meterRegistry);
+        this.remainingWallTimeTimer = Timer.builder("executor.watchdog.cancellations.remaining.wall.time")
+                .description("Upper bound of the wall time runner processes killed because of a cancellation"
+                        + " could have kept running (i.e the time left till their deadline)")
+                .register(meterRegistry);
+    }
+
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+
+    /**
+     * Starts watching the given {@code process}, which will be killed (together with its descendants)
+     * if it is still alive when the given {@code timeout} elapses.
+     *
+     * @param process The {@link ProcessHandle} of the process to be watched.
+     * @param timeout The time (in milliseconds) given to the process to finish.
+     * @return A {@link Watch} that must be closed once the process finishes.
+     */
+    public Watch watch(final ProcessHandle process, final long timeout) {
+        final var watch = new Watch(process);
+        watch.deadline = timer.schedule(watch::expire, timeout, TimeUnit.MILLISECONDS);
+        return watch;
+    }
+
+    /**
+     * Returns a {@link Watch} that does not watch any process
+     * (e.g to be used when the process finished before it could be watched).
+     *
+     * @return A {@link Watch} that never times out.
+     */
+    public Watch unwatched() {
+        return new Watch(null);
+    }
+
+    /**
+     * Kills the given {@code process} and all its descendants.
+     * Descendants are collected before killing anything, as they are re-parented once their parent dies.
+     *
+     * @param process The {@link ProcessHandle} of the process to be killed.
+     */
+    public void killTree(final ProcessHandle process) {
+        final var descendants = process.descendants().collect(Collectors.toList());
+        process.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+        killedProcessesCounter.increment(1 + descendants.size());
+        LOGGER.debug("Killed process {} and {} descendants", process.pid(), descendants.size());
+    }
+
+
+    /**
+     * Represents the watching of a process.
+     */
+    public final class Watch implements AutoCloseable {
+
+        /**
+         * The {@link ProcessHandle} of the process being watched (or {@code null} if no process is watched).
+         */
+        private final ProcessHandle process;
+        /**
+         * The {@link ScheduledFuture} that kills the process when it reaches its deadline.
+         */
+        private volatile ScheduledFuture<?> deadline;
+        /**
+         * Indicates whether the process reached its deadline.
+         */
+        private volatile boolean timedOut;
+        /**
+         * Indicates whether the process was killed because its execution was cancelled.
+         */
+        private volatile boolean cancelled;
+
+
+        /**
+         * Constructor.
+         *
+         * @param process The {@link ProcessHandle} of the process being watched
+         *                (or {@code null} if no process is watched).
+         */
+        private Watch(final ProcessHandle process) {
+            this.process = process;
+            this.timedOut = false;
+            this.cancelled = false;
+        }
+
+
+        /**
+         * @return {@code true} if the process reached its deadline (and was killed), or {@code false} otherwise.
+         */
+        public boolean hasTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * @return {@code true} if the process was killed because its execution was cancelled,
+         * or {@code false} otherwise.
+         */
+        public boolean hasBeenCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Kills the process (and its descendants) because its execution was cancelled,
+         * recording the wall time that was left till its deadline. Does nothing if the process is not alive.
+         */
+        public void cancel() {
+            final var deadline = this.deadline;
+            if (process == null || deadline == null || !process.isAlive()) {
+                return; // Not watching, or already finished
+            }
+            final var remaining = deadline.getDelay(TimeUnit.MILLISECONDS);
+            if (!deadline.cancel(false)) {
+                return; // Already expired (or closed)
+            }
+            cancelled = true;
+            cancellationsCounter.increment();
+            remainingWallTimeTimer.record(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            try {
+                killTree(process);
+            } catch (final Throwable e) {
+                LOGGER.error("Could not kill process {}", process.pid(), e);
+            }
+        }
+
+        /**
+         * Stops watching the process.
+         */
+        @Override
+        public void close() {
+            final var deadline = this.deadline;
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+        }
+
+
+        /**
+         * Kills the process (and its descendants) as it reached its deadline.
+         */
+        private void expire() {
+            if (!process.isAlive()) {
+                return;
+            }
+            timedOut = true;
+            timeoutsCounter.increment();
+            try {
+                killTree(process);
+            } catch (final Throwable e) {
+                LOGGER.error("Could not kill process {}", process.pid(), e); // Must not kill the timer
+            }
+        }
+    }
+}
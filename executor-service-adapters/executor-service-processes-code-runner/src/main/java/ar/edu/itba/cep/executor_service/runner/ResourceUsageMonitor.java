@@ -0,0 +1,228 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodically samples the usage of resources that can leak in a long-lived executor node
+ * (i.e open files, child and zombie processes, heap after GC, working directories and their disk usage),
+ * and detects those that grow without bound.
+ * Samples are grouped in windows. As usage depends on the load, the baseline of each window (i.e its min. value)
+ * is used to detect growth: a resource is suspected of leaking when its baseline grows for several windows in a row.
+ */
+public class ResourceUsageMonitor implements InitializingBean, DisposableBean {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ResourceUsageMonitor.class);
+
+
+    /**
+     * Time (in milliseconds) between samples.
+     */
+    private final long sampleInterval;
+    /**
+     * The amount of samples in a window.
+     */
+    private final int windowSize;
+    /**
+     * The amount of consecutive windows in which the baseline of a resource must grow
+     * to suspect that the resource is leaking.
+     */
+    private final int maxGrowingWindows;
+    /**
+     * The {@link MeterRegistry} in which metrics are registered.
+     */
+    private final MeterRegistry meterRegistry;
+    /**
+     * The {@link ScheduledExecutorService} that periodically samples the resources.
+     */
+    private final ScheduledExecutorService scheduler;
+    /**
+     * The monitored resources, by name.
+     */
+    private final Map<String, Resource> resources;
+
+
+    /**
+     * Constructor.
+     *
+     * @param baseWorkingDir    Base working directory for the runner (i.e where working directories are created).
+     * @param sampleInterval    Time (in milliseconds) between samples.
+     * @param windowSize        The amount of samples in a window.
+     * @param maxGrowingWindows The amount of consecutive windows in which the baseline of a resource must grow
+     *                          to suspect that the resource is leaking.
+     * @param meterRegistry     The {@link MeterRegistry} in which metrics are registered.
+     */
+    public ResourceUsageMonitor(
+            final String baseWorkingDir,
+            final long sampleInterval,
+            final int windowSize,
+            final int maxGrowingWindows,
+            final MeterRegistry meterRegistry) {
+        Assert.isTrue(sampleInterval > 0, "The sample interval must be positive");
+        Assert.isTrue(windowSize > 0, "The window size must be positive");
+        Assert.isTrue(maxGrowingWindows > 0, "The max. amount of growing windows must be positive");
+        this.sampleInterval = sampleInterval;
+        this.windowSize = windowSize;
+        this.maxGrowingWindows = maxGrowingWindows;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "resource-usage-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final var probe = new ResourceUsageProbe(baseWorkingDir);
+        this.resources = new LinkedHashMap<>();
+        this.resources.put("open-files", new Resource(probe::openFiles));
+        this.resources.put("child-processes", new Resource(probe::childProcesses));
+        this.resources.put("zombie-processes", new Resource(probe::zombieProcesses));
+        this.resources.put("heap-after-gc", new Resource(probe::heapAfterGc));
+        this.resources.put("working-directories", new Resource(probe::workingDirectories));
+        this.resources.put("working-directory-disk-usage", new Resource(probe::workingDirectoryDiskUsage));
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        resources.forEach((name, resource) -> {
+            Gauge.builder("executor.resources.usage", resource, Resource::getLastValue)
+                    .description("Usage of resources that can leak")
+                    .tag("resource", name)
+                    .register(meterRegistry);
+            Gauge.builder("executor.resources.leak.suspected", resource, Resource::getLeakSuspected)
+                    .description("Indicates whether the resource is growing without bound (1) or not (0)")
+                    .tag("resource", name)
+                    .register(meterRegistry);
+        });
+        scheduler.scheduleWithFixedDelay(this::sample, 0, sampleInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+
+    /**
+     * Samples all the resources.
+     */
+    private void sample() {
+        resources.forEach((name, resource) -> {
+            try {
+                resource.sample(name);
+            } catch (final Throwable e) {
+                LOGGER.error("Could not sample resource {}", name, e); // Must not kill the scheduler
+            }
+        });
+    }
+
+
+    /**
+     * A monitored resource.
+     */
+    private final class Resource {
+
+        /**
+         * Reads the current usage of the resource.
+         */
+        private final Supplier<OptionalDouble> reader;
+        /**
+         * The last sampled value (or {@link Double#NaN} if none was sampled).
+         */
+        private volatile double lastValue;
+        /**
+         * Indicates whether the resource is suspected of leaking.
+         */
+        private volatile boolean leakSuspected;
+        /**
+         * The amount of samples in the current window.
+         */
+        private int samples;
+        /**
+         * The baseline (i.e min. value) of the current window.
+         */
+        private double baseline;
+        /**
+         * The baseline of the previous window (or {@link Double#NaN} if there is no previous window).
+         */
+        private double previousBaseline;
+        /**
+         * The amount of consecutive windows in which the baseline has grown.
+         */
+        private int growingWindows;
+
+
+        /**
+         * Constructor.
+         *
+         * @param reader Reads the current usage of the resource.
+         */
+        private Resource(final Supplier<OptionalDouble> reader) {
+            this.reader = reader;
+            this.lastValue = Double.NaN;
+            this.leakSuspected = false;
+            this.samples = 0;
+            this.baseline = Double.POSITIVE_INFINITY;
+            this.previousBaseline = Double.NaN;
+            this.growingWindows = 0;
+        }
+
+
+        /**
+         * @return The last sampled value.
+         */
+        private double getLastValue() {
+            return lastValue;
+        }
+
+        /**
+         * @return {@code 1} if the resource is suspected of leaking, or {@code 0} otherwise.
+         */
+        private double getLeakSuspected() {
+            return leakSuspected ? 1 : 0;
+        }
+
+        /**
+         * Samples the resource, checking whether it is growing without bound when a window is completed.
+         *
+         * @param name The name of the resource (used for logging).
+         */
+        private void sample(final String name) {
+            final var value = reader.get();
+            if (value.isEmpty()) {
+                return;
+            }
+            lastValue = value.getAsDouble();
+            baseline = Math.min(baseline, lastValue);
+            if (++samples < windowSize) {
+                return;
+            }
+            // Window completed
+            growingWindows = baseline > previousBaseline ? growingWindows + 1 : 0;
+            final var suspected = growingWindows >= maxGrowingWindows;
+            if (suspected && !leakSuspected) {
+                LOGGER.warn("The baseline of resource {} has grown for {} windows in a row (now {})."
+                        + " It might be leaking", name, growingWindows, baseline);
+            }
+            leakSuspected = suspected;
+            previousBaseline = baseline;
+            baseline = Double.POSITIVE_INFINITY;
+            samples = 0;
+        }
+    }
+}
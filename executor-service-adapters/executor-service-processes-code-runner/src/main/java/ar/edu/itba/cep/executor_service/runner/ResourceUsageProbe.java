@@ -0,0 +1,196 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Reads the usage of resources that can leak in a long-lived executor node
+ * (i.e file descriptors, processes, heap and working directories).
+ * Values that are read from the {@code /proc} filesystem are empty in systems without it (i.e non Linux systems).
+ * Only the working directories created by the runner (i.e those named with a random {@link UUID}) are taken into
+ * account, as the base working directory can be shared (e.g {@code /tmp}) with other (legitimately growing) data.
+ */
+/* package */ final class ResourceUsageProbe {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ResourceUsageProbe.class);
+
+    /**
+     * Path to the directory with the file descriptors opened by this process.
+     */
+    private final static Path FILE_DESCRIPTORS_PATH = Paths.get("/proc/self/fd");
+    /**
+     * State of zombie processes, as reported in the {@code /proc/[pid]/stat} file.
+     */
+    private final static String ZOMBIE_STATE = "Z";
+
+
+    /**
+     * Base working directory for the runner (i.e where working directories are created).
+     */
+    private final File baseWorkingDir;
+
+
+    /**
+     * Constructor.
+     *
+     * @param baseWorkingDir Base working directory for the runner (i.e where working directories are created).
+     */
+    /* package */ ResourceUsageProbe(final String baseWorkingDir) {
+        this.baseWorkingDir = new File(baseWorkingDir);
+    }
+
+
+    /**
+     * @return An {@link OptionalDouble} with the amount of file descriptors opened by this process,
+     * or empty if it could not be read.
+     */
+    /* package */ OptionalDouble openFiles() {
+        try (final var descriptors = Files.list(FILE_DESCRIPTORS_PATH)) {
+            return OptionalDouble.of(descriptors.count());
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.trace("Could not read the open file descriptors", e);
+            return OptionalDouble.empty();
+        }
+    }
+
+    /**
+     * @return An {@link OptionalDouble} with the amount of descendant processes of this process.
+     */
+    /* package */ OptionalDouble childProcesses() {
+        return OptionalDouble.of(ProcessHandle.current().descendants().count());
+    }
+
+    /**
+     * @return An {@link OptionalDouble} with the amount of descendant processes of this process that are zombies
+     * (i.e finished but not reaped).
+     */
+    /* package */ OptionalDouble zombieProcesses() {
+        return OptionalDouble.of(ProcessHandle.current().descendants().filter(ResourceUsageProbe::isZombie).count());
+    }
+
+    /**
+     * Returns the amount of heap used after the last garbage collection
+     * (i.e without the garbage that was not collected yet).
+     *
+     * @return An {@link OptionalDouble} with the amount of bytes, or empty if it could not be read.
+     */
+    /* package */ OptionalDouble heapAfterGc() {
+        final var used = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .map(MemoryPoolMXBean::getCollectionUsage)
+                .filter(Objects::nonNull)
+                .mapToLong(MemoryUsage::getUsed)
+                .sum();
+        return used > 0 ? OptionalDouble.of(used) : OptionalDouble.empty();
+    }
+
+    /**
+     * @return An {@link OptionalDouble} with the amount of working directories in the base working directory,
+     * or empty if it could not be read.
+     */
+    /* package */ OptionalDouble workingDirectories() {
+        try (final var directories = listWorkingDirectories()) {
+            return OptionalDouble.of(directories.count());
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.trace("Could not read the base working directory", e);
+            return OptionalDouble.empty();
+        }
+    }
+
+    /**
+     * @return An {@link OptionalDouble} with the amount of bytes used by the files in the working directories,
+     * or empty if they could not be read.
+     */
+    /* package */ OptionalDouble workingDirectoryDiskUsage() {
+        try (final var directories = listWorkingDirectories()) {
+            return OptionalDouble.of(directories.mapToLong(ResourceUsageProbe::size).sum());
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.trace("Could not read the working directories disk usage", e);
+            return OptionalDouble.empty();
+        }
+    }
+
+
+    /**
+     * Lists the working directories created by the runner in the base working directory.
+     *
+     * @return A {@link Stream} of {@link Path}s of the working directories (must be closed).
+     * @throws IOException If the base working directory could not be read.
+     */
+    private Stream<Path> listWorkingDirectories() throws IOException {
+        return Files.list(baseWorkingDir.toPath())
+                .filter(Files::isDirectory)
+                .filter(path -> isUuid(path.getFileName().toString()));
+    }
+
+    /**
+     * Returns the amount of bytes used by the files in the given {@code directory}.
+     * Files that are deleted while being walked (e.g because the execution finished) are not taken into account.
+     *
+     * @param directory The {@link Path} of the directory.
+     * @return The amount of bytes.
+     */
+    private static long size(final Path directory) {
+        try (final var paths = Files.walk(directory)) {
+            return paths.mapToLong(path -> {
+                try {
+                    final var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    return attributes.isRegularFile() ? attributes.size() : 0;
+                } catch (final IOException e) {
+                    return 0; // Already deleted
+                }
+            }).sum();
+        } catch (final IOException | RuntimeException e) {
+            return 0; // Already deleted
+        }
+    }
+
+    /**
+     * Indicates whether the given {@code name} is a {@link UUID} (i.e the name given to working directories).
+     *
+     * @param name The name to be checked.
+     * @return {@code true} if it is a {@link UUID}, or {@code false} otherwise.
+     */
+    private static boolean isUuid(final String name) {
+        try {
+            return UUID.fromString(name).toString().equals(name);
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Indicates whether the given {@code process} is a zombie, according to its {@code /proc/[pid]/stat} file.
+     *
+     * @param process The {@link ProcessHandle} of the process.
+     * @return {@code true} if the process is a zombie, or {@code false} otherwise (or if it could not be read).
+     */
+    private static boolean isZombie(final ProcessHandle process) {
+        try {
+            final var stat = Files.readString(Paths.get("/proc", Long.toString(process.pid()), "stat"));
+            // The state comes after the command name, which is enclosed in parentheses (and can contain spaces)
+            final var fields = stat.substring(stat.lastIndexOf(')') + 1).trim().split("\\s+");
+            return ZOMBIE_STATE.equals(fields[0]);
+        } catch (final IOException | RuntimeException e) {
+            return false; // Already gone, or not a Linux system
+        }
+    }
+}
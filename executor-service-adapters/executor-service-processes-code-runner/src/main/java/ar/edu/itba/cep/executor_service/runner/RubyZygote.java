@@ -0,0 +1,479 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Client of a Ruby zygote process (i.e a long-lived Ruby interpreter that forks a child for each execution).
+ * This avoids paying the interpreter boot cost for each execution. Nothing else than what a plain interpreter loads
+ * is preloaded (i.e no stdlib feature is required by the zygote), so programs behave as with the ruby executor,
+ * and thus the only saving is the interpreter boot. It is recorded for each execution
+ * (as the cold start time minus the fork time) by the {@code executor.ruby.zygote.startup.savings} timer,
+ * which tells whether the mode pays off in a given node.
+ * Communication is performed through the zygote's standard streams, using one message per line
+ * (requests have their fields encoded in base64, so the zygote does not need to load any library to parse them).
+ * Running programs can be killed (e.g when their execution is cancelled) with a kill request,
+ * which makes the zygote kill the process group of the child that runs them.
+ * Check the {@code ruby-zygote.rb} executor for more information on the protocol.
+ */
+public class RubyZygote implements InitializingBean, DisposableBean {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(RubyZygote.class);
+
+    /**
+     * Line sent by the zygote when it is ready to receive requests.
+     */
+    private final static String READY_LINE = "ready";
+    /**
+     * Separator of the fields of requests and responses.
+     */
+    private final static String FIELDS_SEPARATOR = " ";
+    /**
+     * Command that starts kill requests (followed by the id of the request whose program must be killed).
+     */
+    private final static String KILL_COMMAND = "kill";
+    /**
+     * The amount of times a plain interpreter is started to measure its cold start time.
+     */
+    private final static int COLD_START_SAMPLES = 3;
+
+
+    /**
+     * The command used to start the zygote process.
+     */
+    private final String command;
+    /**
+     * Time given to the zygote process to be ready to receive requests.
+     */
+    private final long startupTimeout;
+    /**
+     * The command that starts a plain interpreter running an empty program (i.e as the ruby.sh executor would),
+     * used to measure the cold start time against which savings are computed.
+     */
+    private final List<String> coldStartCommand;
+    /**
+     * {@link Timer} that records, for each execution, the startup time saved by forking the zygote
+     * instead of starting a new interpreter (i.e the plain interpreter's cold start time minus the fork time).
+     */
+    private final Timer startupSavingsTimer;
+    /**
+     * Generates identifiers for the requests sent to the zygote.
+     */
+    private final AtomicLong requestIds;
+    /**
+     * Holds the {@link CompletableFuture}s of the requests that are waiting for a response, by request id.
+     */
+    private final Map<Long, CompletableFuture<Response>> pendingRequests;
+    /**
+     * The ids of the requests that were sent to the zygote, and are waiting for a response
+     * (i.e those whose program can be killed).
+     */
+    private final Set<Long> sentRequests;
+    /**
+     * The ids of the requests that were killed before being sent to the zygote
+     * (i.e those whose program must be killed as soon as they are sent).
+     */
+    private final Set<Long> killedRequests;
+
+    /**
+     * The zygote {@link Process}.
+     */
+    private Process process;
+    /**
+     * The {@link Writer} used to send requests to the zygote.
+     */
+    private Writer requestsWriter;
+    /**
+     * The time it takes a plain interpreter to start and run an empty program
+     * (or {@code null} if it could not be measured, in which case savings are not recorded).
+     */
+    private Duration coldStartTime;
+
+
+    /**
+     * Constructor.
+     *
+     * @param command          The command used to start the zygote process.
+     * @param startupTimeout   Time given to the zygote process to be ready to receive requests.
+     * @param coldStartCommand The command that starts a plain interpreter running an empty program,
+     *                         used to measure the cold start time against which savings are computed.
+     * @param meterRegistry    The {@link MeterRegistry} in which metrics are registered.
+     */
+    public RubyZygote(
+            final String command,
+            final long startupTimeout,
+            final List<String> coldStartCommand,
+            final MeterRegistry meterRegistry) {
+        this.command = command;
+        this.startupTimeout = startupTimeout;
+        this.coldStartCommand = List.copyOf(coldStartCommand);
+        this.startupSavingsTimer = Timer.builder("executor.ruby.zygote.startup.savings")
+                .description("Interpreter startup time saved by forking the Ruby zygote")
+                .register(meterRegistry);
+        this.requestIds = new AtomicLong();
+        this.pendingRequests = new ConcurrentHashMap<>();
+        this.sentRequests = ConcurrentHashMap.newKeySet();
+        this.killedRequests = ConcurrentHashMap.newKeySet();
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        start();
+        this.coldStartTime = measureColdStart();
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+
+    /**
+     * Runs code using the zygote.
+     *
+     * If the zygote does not respond in time, the program is killed.
+     *
+     * @param request The {@link Request} to be sent to the zygote.
+     * @param timeout Time given to the zygote to respond.
+     * @return An {@link OptionalInt} containing the exit code of the program,
+     * or empty if the zygote did not respond in time.
+     * @throws ExecutionFailedException If the zygote could not run the code.
+     */
+    public OptionalInt run(final Request request, final long timeout) throws ExecutionFailedException {
+        final var future = new CompletableFuture<Response>();
+        pendingRequests.put(request.getId(), future);
+        try {
+            send(request);
+            final var response = future.get(timeout, TimeUnit.MILLISECONDS);
+            if (response.getExitCode() < 0) {
+                throw new ExecutionFailedException("The zygote could not run the code");
+            }
+            if (coldStartTime != null) {
+                final var forkTime = Duration.ofNanos((long) (response.getForkTime() * 1_000_000_000d));
+                startupSavingsTimer.record(coldStartTime.minus(forkTime));
+            }
+            return OptionalInt.of(response.getExitCode());
+        } catch (final TimeoutException e) {
+            kill(request.getId()); // The program must not keep running once nobody waits for it
+            return OptionalInt.empty();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionFailedException("Interrupted while waiting for the zygote", e);
+        } catch (final ExecutionException e) {
+            throw new ExecutionFailedException("The zygote did not respond", e);
+        } finally {
+            pendingRequests.remove(request.getId());
+            sentRequests.remove(request.getId());
+            killedRequests.remove(request.getId());
+        }
+    }
+
+    /**
+     * Kills the program run for the request with the given {@code id} (together with the processes it started),
+     * if it was not responded yet (if it is being sent, it is killed as soon as it is).
+     * The request is then responded with the exit code of the killed program.
+     *
+     * @param id The id of the request.
+     */
+    public synchronized void kill(final long id) {
+        if (sentRequests.contains(id)) {
+            sendKill(id);
+        } else if (pendingRequests.containsKey(id)) {
+            killedRequests.add(id);
+        }
+        // Otherwise, it was already responded
+    }
+
+    /**
+     * @return A new id to be used in a {@link Request}.
+     */
+    public long nextRequestId() {
+        return requestIds.incrementAndGet();
+    }
+
+
+    /**
+     * Starts the zygote process, waiting till it is ready to receive requests.
+     *
+     * @throws ExecutionFailedException If the zygote could not be started.
+     */
+    private synchronized void start() throws ExecutionFailedException {
+        final var startTime = System.nanoTime();
+        try {
+            this.process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        } catch (final IOException e) {
+            throw new ExecutionFailedException("Could not start the Ruby zygote", e);
+        }
+        this.requestsWriter = new BufferedWriter(
+                new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)
+        );
+        final var responsesReader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
+        );
+        final var ready = new CompletableFuture<Void>();
+        final var readerThread = new Thread(() -> readResponses(responsesReader, ready), "ruby-zygote-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        try {
+            ready.get(startupTimeout, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionFailedException("Interrupted while starting the Ruby zygote", e);
+        } catch (final ExecutionException | TimeoutException e) {
+            process.destroyForcibly();
+            throw new ExecutionFailedException("The Ruby zygote did not start", e);
+        }
+        LOGGER.info("Ruby zygote started in {} ms", Duration.ofNanos(System.nanoTime() - startTime).toMillis());
+    }
+
+    /**
+     * Measures the time it takes a plain interpreter to start and run an empty program
+     * (i.e the minimum of {@link #COLD_START_SAMPLES} runs of the cold start command).
+     *
+     * @return The measured time, or {@code null} if it could not be measured.
+     */
+    private Duration measureColdStart() {
+        Duration coldStart = null;
+        for (int i = 0; i < COLD_START_SAMPLES; i++) {
+            final var startTime = System.nanoTime();
+            try {
+                final var interpreter = new ProcessBuilder(coldStartCommand)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                if (!interpreter.waitFor(startupTimeout, TimeUnit.MILLISECONDS) || interpreter.exitValue() != 0) {
+                    interpreter.destroyForcibly();
+                    LOGGER.warn("Could not measure the Ruby cold start time. Startup savings will not be recorded");
+                    return null;
+                }
+            } catch (final IOException e) {
+                LOGGER.warn("Could not measure the Ruby cold start time. Startup savings will not be recorded", e);
+                return null;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            final var sample = Duration.ofNanos(System.nanoTime() - startTime);
+            coldStart = coldStart == null || sample.compareTo(coldStart) < 0 ? sample : coldStart;
+        }
+        LOGGER.info("Ruby cold start takes {} ms", coldStart.toMillis());
+        return coldStart;
+    }
+
+    /**
+     * Stops the zygote process.
+     */
+    private synchronized void stop() {
+        if (process != null) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Sends the given {@code request} to the zygote, restarting it if it is not alive.
+     *
+     * @param request The {@link Request} to be sent.
+     * @throws ExecutionFailedException If the request could not be sent.
+     */
+    private synchronized void send(final Request request) throws ExecutionFailedException {
+        if (!process.isAlive()) {
+            LOGGER.warn("The Ruby zygote is not alive. Restarting it...");
+            start();
+        }
+        try {
+            requestsWriter.write(request.encode());
+            requestsWriter.write(System.lineSeparator());
+            requestsWriter.flush();
+            sentRequests.add(request.getId());
+        } catch (final IOException e) {
+            throw new ExecutionFailedException("Could not send the request to the Ruby zygote", e);
+        }
+        if (killedRequests.remove(request.getId())) {
+            sendKill(request.getId());
+        }
+    }
+
+    /**
+     * Sends a kill request for the request with the given {@code id} to the zygote.
+     *
+     * @param id The id of the request whose program must be killed.
+     */
+    private synchronized void sendKill(final long id) {
+        try {
+            requestsWriter.write(KILL_COMMAND + FIELDS_SEPARATOR + id);
+            requestsWriter.write(System.lineSeparator());
+            requestsWriter.flush();
+        } catch (final IOException e) {
+            LOGGER.error("Could not send the kill request for request {} to the Ruby zygote", id, e);
+        }
+    }
+
+    /**
+     * Reads the responses sent by the zygote, completing the corresponding pending request.
+     * Returns when the zygote closes its output (i.e when it dies).
+     *
+     * @param reader The {@link BufferedReader} from where responses are read.
+     * @param ready  A {@link CompletableFuture} to be completed when the zygote is ready to receive requests.
+     */
+    private void readResponses(final BufferedReader reader, final CompletableFuture<Void> ready) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (READY_LINE.equals(line.trim())) {
+                    ready.complete(null);
+                    continue;
+                }
+                final var response = toResponse(line);
+                if (response == null) {
+                    LOGGER.warn("Received a malformed response from the Ruby zygote: {}", line);
+                    continue;
+                }
+                final var pending = pendingRequests.get(response.getId());
+                if (pending != null) {
+                    pending.complete(response);
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.error("Could not read from the Ruby zygote", e);
+        }
+        // The zygote is dead. Nothing else will be received, so fail everything is waiting.
+        final var exception = new ExecutionFailedException("The Ruby zygote died");
+        ready.completeExceptionally(exception);
+        pendingRequests.values().forEach(future -> future.completeExceptionally(exception));
+    }
+
+    /**
+     * Converts the given response {@code line} into a {@link Response}.
+     *
+     * @param line The line sent by the zygote.
+     * @return The {@link Response}, or {@code null} if the line is malformed.
+     */
+    private static Response toResponse(final String line) {
+        final var fields = line.trim().split(FIELDS_SEPARATOR);
+        if (fields.length != 3) {
+            return null;
+        }
+        try {
+            return new Response(Long.parseLong(fields[0]), Integer.parseInt(fields[1]), Double.parseDouble(fields[2]));
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * A request to be sent to the zygote.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Request {
+        /**
+         * The request's id.
+         */
+        private final long id;
+        /**
+         * The working directory in which the code must be run.
+         */
+        private final String directory;
+        /**
+         * The code to be run.
+         */
+        private final String code;
+        /**
+         * The name of the file where the code must be stored (empty to use the default).
+         */
+        private final String mainFileName;
+        /**
+         * The arguments passed to the program.
+         */
+        private final List<String> args;
+        /**
+         * The timeout given to the program, in seconds.
+         */
+        private final double timeout;
+        /**
+         * The name of the file where the execution result must be stored.
+         */
+        private final String resultFileName;
+        /**
+         * Path to the file to be used as the program's standard input.
+         */
+        private final String stdin;
+        /**
+         * Path to the file to be used as the program's standard output.
+         */
+        private final String stdout;
+        /**
+         * Path to the file to be used as the program's standard error.
+         */
+        private final String stderr;
+
+
+        /**
+         * Encodes this request as a line to be sent to the zygote (without the line separator),
+         * with its fields encoded in base64, in the order expected by the zygote (arguments at the end).
+         *
+         * @return The encoded request.
+         */
+        private String encode() {
+            final var fields = new ArrayList<String>();
+            fields.add(Long.toString(id));
+            fields.add(directory);
+            fields.add(code);
+            fields.add(mainFileName);
+            fields.add(Double.toString(timeout));
+            fields.add(resultFileName);
+            fields.add(stdin);
+            fields.add(stdout);
+            fields.add(stderr);
+            fields.addAll(args);
+            final var encoder = Base64.getEncoder();
+            return fields.stream()
+                    .map(field -> encoder.encodeToString(field.getBytes(StandardCharsets.UTF_8)))
+                    .collect(Collectors.joining(FIELDS_SEPARATOR));
+        }
+    }
+
+    /**
+     * A response sent by the zygote.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class Response {
+        /**
+         * The id of the request being responded.
+         */
+        private final long id;
+        /**
+         * The exit code of the program (negative if the zygote could not run it).
+         */
+        private final int exitCode;
+        /**
+         * The time it took to start the child, in seconds.
+         */
+        private final double forkTime;
+    }
+}
@@ -0,0 +1,25 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import java.util.Optional;
+
+/**
+ * A process spawned by a {@link ProcessSpawner}.
+ */
+public interface SpawnedProcess {
+
+    /**
+     * Returns the {@link ProcessHandle} of the process, wrapped in an {@link Optional}.
+     *
+     * @return An {@link Optional} holding the {@link ProcessHandle} of the process,
+     * or empty if the process does not exist anymore.
+     */
+    Optional<ProcessHandle> toHandle();
+
+    /**
+     * Waits till the process finishes.
+     *
+     * @return The exit code of the process.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     */
+    int waitFor() throws InterruptedException;
+}
@@ -0,0 +1,184 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.OptionalDouble;
+import java.util.stream.Stream;
+
+/**
+ * Reads the system load, CPU contention and memory pressure from the {@code /proc} filesystem.
+ * In systems without it (i.e non Linux systems), all probes return empty values.
+ * Instances are not thread safe (i.e the CPU pressure probe keeps the previous sample).
+ */
+/* package */ final class SystemLoadProbe {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(SystemLoadProbe.class);
+
+    /**
+     * Path to the file with the system load averages.
+     */
+    private final static Path LOAD_AVERAGE_PATH = Paths.get("/proc/loadavg");
+    /**
+     * Path to the file with the memory statistics.
+     */
+    private final static Path MEMORY_INFO_PATH = Paths.get("/proc/meminfo");
+    /**
+     * Path to the file with the CPU pressure stall information (available since Linux 4.20).
+     */
+    private final static Path CPU_PRESSURE_PATH = Paths.get("/proc/pressure/cpu");
+    /**
+     * Path to the file with the scheduler statistics (used if the CPU pressure stall information is not available).
+     */
+    private final static Path SCHEDULER_STATISTICS_PATH = Paths.get("/proc/schedstat");
+
+
+    /**
+     * The amount of processors available.
+     */
+    private final int processors;
+
+    /**
+     * The time (in nanoseconds, as returned by {@link System#nanoTime()}) at which the CPU stall was last sampled.
+     */
+    private long lastStallSampleTime;
+    /**
+     * The last sampled CPU stall (in nanoseconds), or a negative value if it was not sampled yet.
+     */
+    private long lastStall;
+
+
+    /**
+     * Constructor.
+     */
+    /* package */ SystemLoadProbe() {
+        this.processors = Runtime.getRuntime().availableProcessors();
+        this.lastStallSampleTime = 0;
+        this.lastStall = -1;
+    }
+
+
+    /**
+     * @return The amount of processors available.
+     */
+    /* package */ int getProcessors() {
+        return processors;
+    }
+
+    /**
+     * Returns the one minute load average, divided by the amount of processors
+     * (i.e values greater than one indicate there are more runnable processes than processors).
+     *
+     * @return An {@link OptionalDouble} with the load per processor, or empty if it could not be read.
+     */
+    /* package */ OptionalDouble loadPerProcessor() {
+        try {
+            final var fields = Files.readString(LOAD_AVERAGE_PATH).trim().split("\\s+");
+            return OptionalDouble.of(Double.parseDouble(fields[0]) / processors);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.trace("Could not read the load average", e);
+            return OptionalDouble.empty();
+        }
+    }
+
+    /**
+     * Returns the fraction of the time elapsed since the previous call during which runnable tasks were waiting
+     * for a CPU (i.e the run-time inflation caused by contention, which, unlike the executions wall time,
+     * is not affected by programs that run for long, or that sleep or wait for IO).
+     * It is read from the CPU pressure stall information ("some" line), or, if not available,
+     * from the time tasks waited on the run queues (per processor) according to the scheduler statistics.
+     * The first call only takes the initial sample, so it returns an empty value.
+     *
+     * @return An {@link OptionalDouble} with the CPU pressure, or empty if it could not be read.
+     */
+    /* package */ OptionalDouble cpuPressure() {
+        final var now = System.nanoTime();
+        final var stall = readCpuStall();
+        if (stall < 0) {
+            return OptionalDouble.empty();
+        }
+        final var previousStall = lastStall;
+        final var elapsed = now - lastStallSampleTime;
+        lastStall = stall;
+        lastStallSampleTime = now;
+        if (previousStall < 0 || elapsed <= 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(Math.max(0, stall - previousStall) / (double) elapsed);
+    }
+
+    /**
+     * Returns the fraction of the total memory that is available for starting new processes.
+     *
+     * @return An {@link OptionalDouble} with the available memory fraction, or empty if it could not be read.
+     */
+    /* package */ OptionalDouble availableMemoryFraction() {
+        try (final var lines = Files.lines(MEMORY_INFO_PATH)) {
+            final var values = new long[]{-1, -1}; // Total and available
+            lines.forEach(line -> {
+                if (line.startsWith("MemTotal:")) {
+                    values[0] = parseKilobytes(line);
+                } else if (line.startsWith("MemAvailable:")) {
+                    values[1] = parseKilobytes(line);
+                }
+            });
+            if (values[0] <= 0 || values[1] < 0) {
+                return OptionalDouble.empty();
+            }
+            return OptionalDouble.of((double) values[1] / values[0]);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.trace("Could not read the memory information", e);
+            return OptionalDouble.empty();
+        }
+    }
+
+
+    /**
+     * Reads the accumulated CPU stall (i.e the total time during which runnable tasks waited for a CPU).
+     * It is the total of the "some" line of the CPU pressure stall information, or, if not available,
+     * the sum of the run queue wait time of all the processors divided by the amount of processors.
+     *
+     * @return The accumulated CPU stall, in nanoseconds, or a negative value if it could not be read.
+     */
+    private long readCpuStall() {
+        try (final var lines = Files.lines(CPU_PRESSURE_PATH)) {
+            return lines.filter(line -> line.startsWith("some "))
+                    .flatMap(line -> Stream.of(line.split("\\s+")))
+                    .filter(field -> field.startsWith("total="))
+                    .mapToLong(field -> Long.parseLong(field.substring("total=".length())) * 1000) // In microseconds
+                    .findFirst()
+                    .orElse(-1);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.trace("Could not read the CPU pressure stall information. Trying with scheduler statistics", e);
+        }
+        try (final var lines = Files.lines(SCHEDULER_STATISTICS_PATH)) {
+            // Lines of processors are "cpu<N>" followed by 9 fields, being the 8th the time waited on the run queue
+            final var waited = lines.filter(line -> line.startsWith("cpu"))
+                    .map(line -> line.split("\\s+"))
+                    .filter(fields -> fields.length >= 10)
+                    .mapToLong(fields -> Long.parseLong(fields[8]))
+                    .sum();
+            return waited / processors;
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.trace("Could not read the scheduler statistics", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a line of the memory statistics file (e.g {@code MemTotal:  16318460 kB}).
+     *
+     * @param line The line to be parsed.
+     * @return The value in the line.
+     */
+    private static long parseKilobytes(final String line) {
+        return Long.parseLong(line.split("\\s+")[1]);
+    }
+}
@@ -0,0 +1,78 @@
+package ar.edu.itba.cep.executor_service.runner.config;
+
+import ar.edu.itba.cep.executor_service.runner.AdaptiveConcurrencyLimiter;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the {@link AdaptiveConcurrencyLimiter}.
+ */
+@ConfigurationProperties(prefix = ConcurrencyLimiterProperties.PREFIX)
+@Getter
+@Setter
+class ConcurrencyLimiterProperties {
+
+    /**
+     * Prefix for these properties.
+     */
+    /* package */ static final String PREFIX = OperatingSystemProcessCodeRunnerProperties.PREFIX + ".concurrency-limiter";
+
+
+    /**
+     * Indicates whether the amount of concurrent executions must be limited.
+     * When enabled, the concurrency of the Kafka listeners (which applies to each command topic) should match
+     * the max. limit, as the limiter cannot go above it, and listener threads above the limit just wait.
+     * Default value: {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The initial limit. A non positive value means the amount of available processors.
+     * Default value: the amount of available processors.
+     */
+    private int initialLimit = 0;
+
+    /**
+     * The min. value the limit can take.
+     * Default value: 1.
+     */
+    private int minLimit = 1;
+
+    /**
+     * The max. value the limit can take. A non positive value means twice the amount of available processors.
+     * Default value: twice the amount of available processors.
+     */
+    private int maxLimit = 0;
+
+    /**
+     * Time (in milliseconds) between limit updates.
+     * Default value: one second.
+     */
+    private long updateInterval = 1000;
+
+    /**
+     * The load average per processor above which the limit is decreased.
+     * Default value: 1.0 (i.e more runnable processes than processors).
+     */
+    private double maxLoadPerProcessor = 1.0;
+
+    /**
+     * The available memory fraction below which the limit is decreased.
+     * Default value: 0.1 (i.e less than 10% of the memory is available).
+     */
+    private double minAvailableMemoryFraction = 0.1;
+
+    /**
+     * The CPU pressure (i.e the fraction of time runnable tasks wait for a CPU) above which the limit is decreased.
+     * Default value: 0.2 (i.e tasks waiting for a CPU 20% of the time).
+     */
+    private double maxCpuPressure = 0.2;
+
+    /**
+     * Min. time (in milliseconds) between limit decreases
+     * (besides waiting for as many executions as the limit to finish after each decrease).
+     * Default value: 30 seconds (as the load average is a one minute average).
+     */
+    private long decreaseCooldown = 30000;
+}
@@ -0,0 +1,33 @@
+package ar.edu.itba.cep.executor_service.runner.config;
+
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.runner.DeadlineCheckingCodeRunner;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the {@link DeadlineCheckingCodeRunner}.
+ */
+@ConfigurationProperties(prefix = DeadlineCheckingProperties.PREFIX)
+@Getter
+@Setter
+class DeadlineCheckingProperties {
+
+    /**
+     * Prefix for these properties.
+     */
+    /* package */ static final String PREFIX = OperatingSystemProcessCodeRunnerProperties.PREFIX + ".deadline-checking";
+
+
+    /**
+     * A {@link Map} containing the duration (in milliseconds) expected for the executions of each {@link Language}
+     * till one of them finishes (i.e before the average duration is known).
+     * Languages not included are expected to take the request's timeout, if any.
+     * Default value: empty.
+     */
+    private Map<Language, Long> initialExpectedDurations = new HashMap<>();
+}
@@ -0,0 +1,41 @@
+package ar.edu.itba.cep.executor_service.runner.config;
+
+import ar.edu.itba.cep.executor_service.runner.InputStore;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the {@link InputStore}.
+ */
+@ConfigurationProperties(prefix = InputStoreProperties.PREFIX)
+@Getter
+@Setter
+class InputStoreProperties {
+
+    /**
+     * Prefix for these properties.
+     */
+    /* package */ static final String PREFIX = OperatingSystemProcessCodeRunnerProperties.PREFIX + ".input-store";
+
+
+    /**
+     * Indicates whether standard inputs must be stored, so they can be referenced by later requests.
+     * Disabled by default, as the service user must be able to create the directory.
+     * Default value: {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The directory in which inputs are stored. It must not be visible to the executed programs
+     * (e.g it must not be inside the temporary directory in which they are run).
+     * Default value: /var/lib/executor-service/inputs/.
+     */
+    private String directory = "/var/lib/executor-service/inputs/";
+
+    /**
+     * The max. amount of bytes that can be stored.
+     * Default value: 512 megabytes.
+     */
+    private long maxSize = 512 * 1024 * 1024; // 512 megabytes in bytes
+}
@@ -37,6 +37,25 @@ class OperatingSystemProcessCodeRunnerProperties {
      */
     private long processTimeout = 3600000; // One hour in milliseconds
 
+    /**
+     * Timeout given to the compilation phase (for compiled languages).
+     * Default value: one minute.
+     */
+    private long compileTimeout = 60000; // One minute in milliseconds
+
+    /**
+     * Margin added to the compile and execution timeouts to get the deadline of the runner command process,
+     * after which it is killed together with its descendants.
+     * Default value: one second.
+     */
+    private long graceMargin = 1000; // One second in milliseconds
+
+    /**
+     * Indicates whether working directories must be deleted once the execution finishes.
+     * Default value: {@code true}.
+     */
+    private boolean deleteWorkingDirectories = true;
+
     /**
      * A {@link Map} containing the commands to be used for each {@link Language}.
      * This commands can be OS shell native commands, shell script files, executable files, custom programs, etc.
@@ -0,0 +1,49 @@
+package ar.edu.itba.cep.executor_service.runner.config;
+
+import ar.edu.itba.cep.executor_service.runner.ProcessSpawner;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the {@link ProcessSpawner}.
+ */
+@ConfigurationProperties(prefix = ProcessSpawnerProperties.PREFIX)
+@Getter
+@Setter
+class ProcessSpawnerProperties {
+
+    /**
+     * Prefix for these properties.
+     */
+    /* package */ static final String PREFIX = OperatingSystemProcessCodeRunnerProperties.PREFIX + ".spawner";
+
+    /**
+     * Mode in which runner command processes are spawned using a {@link ProcessBuilder}.
+     */
+    /* package */ static final String PROCESS_BUILDER_MODE = "process-builder";
+    /**
+     * Mode in which runner command processes are spawned using a launcher process.
+     */
+    /* package */ static final String LAUNCHER_MODE = "launcher";
+
+
+    /**
+     * The mode in which runner command processes are spawned
+     * (i.e {@value #PROCESS_BUILDER_MODE} or {@value #LAUNCHER_MODE}).
+     * Default value: {@value #PROCESS_BUILDER_MODE}.
+     */
+    private String mode = PROCESS_BUILDER_MODE;
+
+    /**
+     * The command used to start the launcher process (when spawning in {@value #LAUNCHER_MODE} mode).
+     * Default value: spawn-launcher.
+     */
+    private String launcherCommand = "spawn-launcher";
+
+    /**
+     * Time given to the launcher process to respond a spawn request.
+     * Default value: 5 seconds.
+     */
+    private long spawnTimeout = 5000; // 5 seconds in milliseconds
+}
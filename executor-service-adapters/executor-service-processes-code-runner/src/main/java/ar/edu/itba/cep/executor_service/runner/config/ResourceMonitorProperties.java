@@ -0,0 +1,47 @@
+package ar.edu.itba.cep.executor_service.runner.config;
+
+import ar.edu.itba.cep.executor_service.runner.ResourceUsageMonitor;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the {@link ResourceUsageMonitor}.
+ */
+@ConfigurationProperties(prefix = ResourceMonitorProperties.PREFIX)
+@Getter
+@Setter
+class ResourceMonitorProperties {
+
+    /**
+     * Prefix for these properties.
+     */
+    /* package */ static final String PREFIX = OperatingSystemProcessCodeRunnerProperties.PREFIX + ".resource-monitor";
+
+
+    /**
+     * Indicates whether resources usage must be monitored to detect leaks
+     * (leaks are checked before releasing with the soak tests, so this is only needed to investigate a node).
+     * Default value: {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Time between samples.
+     * Default value: one minute.
+     */
+    private long sampleInterval = 60000; // One minute in milliseconds
+
+    /**
+     * The amount of samples in a window.
+     * Default value: 60 (i.e one hour windows with the default sample interval).
+     */
+    private int windowSize = 60;
+
+    /**
+     * The amount of consecutive windows in which the baseline of a resource must grow
+     * to suspect that the resource is leaking.
+     * Default value: 6.
+     */
+    private int maxGrowingWindows = 6;
+}
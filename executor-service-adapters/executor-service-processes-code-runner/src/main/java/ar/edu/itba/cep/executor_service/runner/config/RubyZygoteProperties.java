@@ -0,0 +1,50 @@
+package ar.edu.itba.cep.executor_service.runner.config;
+
+import ar.edu.itba.cep.executor_service.runner.RubyZygote;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Configuration properties for the {@link RubyZygote}.
+ */
+@ConfigurationProperties(prefix = RubyZygoteProperties.PREFIX)
+@Getter
+@Setter
+class RubyZygoteProperties {
+
+    /**
+     * Prefix for these properties.
+     */
+    /* package */ static final String PREFIX = OperatingSystemProcessCodeRunnerProperties.PREFIX + ".ruby-zygote";
+
+
+    /**
+     * Indicates whether Ruby code must be run using a zygote process (instead of starting a new interpreter).
+     * As only the interpreter boot is saved (nothing is preloaded), it is worth enabling it in the nodes
+     * where the {@code executor.ruby.zygote.startup.savings} timer shows savings compared to the execution times.
+     * Default value: {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The command used to start the zygote process.
+     * Default value: ruby-zygote.rb.
+     */
+    private String command = "ruby-zygote.rb";
+
+    /**
+     * Time given to the zygote process to be ready to receive requests.
+     * Default value: 30 seconds.
+     */
+    private long startupTimeout = 30000; // 30 seconds in milliseconds
+
+    /**
+     * The command that starts a plain interpreter running an empty program (i.e as the ruby executor would),
+     * used to measure the cold start time against which the startup savings are computed.
+     * Default value: ruby -e "".
+     */
+    private List<String> coldStartCommand = List.of("ruby", "-e", "");
+}
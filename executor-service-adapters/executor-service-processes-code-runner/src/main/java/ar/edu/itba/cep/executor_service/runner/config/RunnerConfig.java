@@ -1,11 +1,26 @@
 package ar.edu.itba.cep.executor_service.runner.config;
 
+import ar.edu.itba.cep.executor_service.runner.AdaptiveConcurrencyLimiter;
 import ar.edu.itba.cep.executor_service.runner.CodeRunner;
+import ar.edu.itba.cep.executor_service.runner.ConcurrencyLimitedCodeRunner;
+import ar.edu.itba.cep.executor_service.runner.DeadlineCheckingCodeRunner;
+import ar.edu.itba.cep.executor_service.runner.InputStore;
+import ar.edu.itba.cep.executor_service.runner.LauncherProcessSpawner;
 import ar.edu.itba.cep.executor_service.runner.OperatingSystemProcessCodeRunner;
+import ar.edu.itba.cep.executor_service.runner.ProcessBuilderSpawner;
+import ar.edu.itba.cep.executor_service.runner.ProcessSpawner;
+import ar.edu.itba.cep.executor_service.runner.ProcessWatchdog;
+import ar.edu.itba.cep.executor_service.runner.ResourceUsageMonitor;
+import ar.edu.itba.cep.executor_service.runner.RubyZygote;
+import brave.Tracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 /**
  * Configuration class for the processes code runner module.
@@ -16,21 +31,208 @@ import org.springframework.context.annotation.Configuration;
 })
 @EnableConfigurationProperties({
         OperatingSystemProcessCodeRunnerProperties.class,
+        RubyZygoteProperties.class,
+        ConcurrencyLimiterProperties.class,
+        DeadlineCheckingProperties.class,
+        ProcessSpawnerProperties.class,
+        InputStoreProperties.class,
+        ResourceMonitorProperties.class,
 })
 public class RunnerConfig {
 
     /**
      * Creates a bean of the {@link OperatingSystemProcessCodeRunner}.
      *
-     * @param properties The {@link OperatingSystemProcessCodeRunnerProperties} to be used.
-     * @return The created {@link CodeRunner}.
+     * @param properties     The {@link OperatingSystemProcessCodeRunnerProperties} to be used.
+     * @param rubyZygote     An {@link ObjectProvider} of the {@link RubyZygote} (which is only available if enabled).
+     * @param inputStore     An {@link ObjectProvider} of the {@link InputStore} (which is only available if enabled).
+     * @param processSpawner The {@link ProcessSpawner} used to spawn runner command processes.
+     * @param watchdog       The {@link ProcessWatchdog} that enforces the deadline of runner command processes.
+     * @param tracer         An {@link ObjectProvider} of the {@link Tracer} used to trace the phases of each execution.
+     * @return The created {@link OperatingSystemProcessCodeRunner}.
      */
     @Bean
-    public CodeRunner codeRunner(final OperatingSystemProcessCodeRunnerProperties properties) {
+    public OperatingSystemProcessCodeRunner operatingSystemProcessCodeRunner(
+            final OperatingSystemProcessCodeRunnerProperties properties,
+            final ObjectProvider<RubyZygote> rubyZygote,
+            final ObjectProvider<InputStore> inputStore,
+            final ProcessSpawner processSpawner,
+            final ProcessWatchdog watchdog,
+            final ObjectProvider<Tracer> tracer) {
         return new OperatingSystemProcessCodeRunner(
                 properties.getBaseWorkingDirectory(),
                 properties.getProcessTimeout(),
-                properties.getCommands()
+                properties.getCompileTimeout(),
+                properties.getGraceMargin(),
+                properties.isDeleteWorkingDirectories(),
+                properties.getCommands(),
+                rubyZygote.getIfAvailable(),
+                inputStore.getIfAvailable(),
+                processSpawner,
+                watchdog,
+                tracer.getIfAvailable()
+        );
+    }
+
+    /**
+     * Creates a bean of the {@link ProcessBuilderSpawner}, only if runner command processes must be spawned
+     * using a {@link ProcessBuilder} (which is the default).
+     *
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     * @return The created {@link ProcessBuilderSpawner}.
+     */
+    @Bean
+    @ConditionalOnProperty(
+            prefix = ProcessSpawnerProperties.PREFIX,
+            name = "mode",
+            havingValue = ProcessSpawnerProperties.PROCESS_BUILDER_MODE,
+            matchIfMissing = true
+    )
+    public ProcessBuilderSpawner processBuilderSpawner(final MeterRegistry meterRegistry) {
+        return new ProcessBuilderSpawner(meterRegistry);
+    }
+
+    /**
+     * Creates a bean of the {@link LauncherProcessSpawner}, only if runner command processes must be spawned
+     * using a launcher process.
+     *
+     * @param properties    The {@link ProcessSpawnerProperties} to be used.
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     * @return The created {@link LauncherProcessSpawner}.
+     */
+    @Bean
+    @ConditionalOnProperty(
+            prefix = ProcessSpawnerProperties.PREFIX,
+            name = "mode",
+            havingValue = ProcessSpawnerProperties.LAUNCHER_MODE
+    )
+    public LauncherProcessSpawner launcherProcessSpawner(
+            final ProcessSpawnerProperties properties,
+            final MeterRegistry meterRegistry) {
+        return new LauncherProcessSpawner(
+                properties.getLauncherCommand(),
+                properties.getSpawnTimeout(),
+                meterRegistry
+        );
+    }
+
+    /**
+     * Creates a bean of the {@link InputStore}, only if it is enabled (it is disabled by default).
+     *
+     * @param properties    The {@link InputStoreProperties} to be used.
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     * @return The created {@link InputStore}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = InputStoreProperties.PREFIX, name = "enabled", havingValue = "true")
+    public InputStore inputStore(final InputStoreProperties properties, final MeterRegistry meterRegistry) {
+        return new InputStore(properties.getDirectory(), properties.getMaxSize(), meterRegistry);
+    }
+
+    /**
+     * Creates a bean of the {@link ResourceUsageMonitor}, only if it is enabled (it is disabled by default).
+     *
+     * @param runnerProperties The {@link OperatingSystemProcessCodeRunnerProperties} (to get the base working
+     *                         directory).
+     * @param properties       The {@link ResourceMonitorProperties} to be used.
+     * @param meterRegistry    The {@link MeterRegistry} in which metrics are registered.
+     * @return The created {@link ResourceUsageMonitor}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = ResourceMonitorProperties.PREFIX, name = "enabled", havingValue = "true")
+    public ResourceUsageMonitor resourceUsageMonitor(
+            final OperatingSystemProcessCodeRunnerProperties runnerProperties,
+            final ResourceMonitorProperties properties,
+            final MeterRegistry meterRegistry) {
+        return new ResourceUsageMonitor(
+                runnerProperties.getBaseWorkingDirectory(),
+                properties.getSampleInterval(),
+                properties.getWindowSize(),
+                properties.getMaxGrowingWindows(),
+                meterRegistry
+        );
+    }
+
+    /**
+     * Creates a bean of the {@link ProcessWatchdog}.
+     *
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     * @return The created {@link ProcessWatchdog}.
+     */
+    @Bean
+    public ProcessWatchdog processWatchdog(final MeterRegistry meterRegistry) {
+        return new ProcessWatchdog(meterRegistry);
+    }
+
+    /**
+     * Creates the {@link CodeRunner} bean to be used by the application
+     * (i.e the {@link OperatingSystemProcessCodeRunner}, whose executions are not performed if their deadline
+     * cannot be met, limited by the {@link AdaptiveConcurrencyLimiter} if it is enabled).
+     *
+     * @param operatingSystemProcessCodeRunner The {@link OperatingSystemProcessCodeRunner}.
+     * @param deadlineCheckingProperties       The {@link DeadlineCheckingProperties} to be used.
+     * @param concurrencyLimiter               An {@link ObjectProvider} of the {@link AdaptiveConcurrencyLimiter}
+     *                                         (which is only available if enabled).
+     * @return The created {@link CodeRunner}.
+     */
+    @Bean
+    @Primary
+    public CodeRunner codeRunner(
+            final OperatingSystemProcessCodeRunner operatingSystemProcessCodeRunner,
+            final DeadlineCheckingProperties deadlineCheckingProperties,
+            final ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter) {
+        final var deadlineCheckingCodeRunner = new DeadlineCheckingCodeRunner(
+                operatingSystemProcessCodeRunner,
+                deadlineCheckingProperties.getInitialExpectedDurations()
+        );
+        final var limiter = concurrencyLimiter.getIfAvailable();
+        if (limiter == null) {
+            return deadlineCheckingCodeRunner;
+        }
+        return new ConcurrencyLimitedCodeRunner(deadlineCheckingCodeRunner, limiter);
+    }
+
+    /**
+     * Creates a bean of the {@link AdaptiveConcurrencyLimiter}, only if it is enabled (it is disabled by default).
+     *
+     * @param properties    The {@link ConcurrencyLimiterProperties} to be used.
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     * @return The created {@link AdaptiveConcurrencyLimiter}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = ConcurrencyLimiterProperties.PREFIX, name = "enabled", havingValue = "true")
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(
+            final ConcurrencyLimiterProperties properties,
+            final MeterRegistry meterRegistry) {
+        final var processors = Runtime.getRuntime().availableProcessors();
+        return new AdaptiveConcurrencyLimiter(
+                properties.getInitialLimit() > 0 ? properties.getInitialLimit() : processors,
+                properties.getMinLimit(),
+                properties.getMaxLimit() > 0 ? properties.getMaxLimit() : 2 * processors,
+                properties.getUpdateInterval(),
+                properties.getMaxLoadPerProcessor(),
+                properties.getMinAvailableMemoryFraction(),
+                properties.getMaxCpuPressure(),
+                properties.getDecreaseCooldown(),
+                meterRegistry
+        );
+    }
+
+    /**
+     * Creates a bean of the {@link RubyZygote}, only if it is enabled.
+     *
+     * @param properties    The {@link RubyZygoteProperties} to be used.
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     * @return The created {@link RubyZygote}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = RubyZygoteProperties.PREFIX, name = "enabled", havingValue = "true")
+    public RubyZygote rubyZygote(final RubyZygoteProperties properties, final MeterRegistry meterRegistry) {
+        return new RubyZygote(
+                properties.getCommand(),
+                properties.getStartupTimeout(),
+                properties.getColdStartCommand(),
+                meterRegistry
         );
     }
 }
@@ -0,0 +1,434 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import ar.edu.itba.cep.executor.models.ExecutionRequest;
+import ar.edu.itba.cep.executor.models.ExecutionResponse;
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancellation;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancelledException;
+import ar.edu.itba.cep.executor_service.models.ExecutionContext;
+import ar.edu.itba.cep.executor_service.models.ExecutionExpiredException;
+import ar.edu.itba.cep.executor_service.models.StdinDigests;
+import ar.edu.itba.cep.executor_service.models.StdinStorage;
+import ar.edu.itba.cep.executor_service.models.UnknownInputException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Soak test of the {@link OperatingSystemProcessCodeRunner}.
+ * It runs a mix of executions (completed, compile errors, runtime errors, crashes, huge outputs, timeouts,
+ * cancellations and referenced inputs) for a long time, sampling the resources that can leak in a long-lived node
+ * on a schedule (see {@link ResourceUsageTrend}), and checks that their baselines do not keep growing,
+ * and that no process or working directory is left behind once it finishes.
+ * It is excluded from the regular build, and run with the {@code soak} profile (i.e {@code mvn test -Psoak}).
+ * It uses the C runner script, so bash, coreutils and gcc must be installed.
+ * The following system properties can be set (the {@code soak} profile sets them from the Maven properties
+ * with the same name):
+ * <ul>
+ * <li>{@code soak.duration}: How long (in milliseconds) executions are run.</li>
+ * <li>{@code soak.concurrency}: How many executions are run at the same time.</li>
+ * <li>{@code soak.sample-interval}: Time (in milliseconds) between samples of the resources.</li>
+ * <li>{@code soak.window-size}: The amount of samples in a window.</li>
+ * <li>{@code soak.max-growing-windows}: The amount of consecutive windows in which the baseline of a resource
+ * must grow to consider that it leaks.</li>
+ * <li>{@code soak.c-runner}: Path to the C runner script.</li>
+ * <li>{@code soak.launcher}: Path to the spawn launcher executable, to spawn processes with it
+ * (processes are spawned by forking the JVM if not set).</li>
+ * </ul>
+ */
+public class OperatingSystemProcessCodeRunnerSoakTest {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(OperatingSystemProcessCodeRunnerSoakTest.class);
+
+    /**
+     * Time (in milliseconds) given to the last processes to be reaped once the soak finishes.
+     */
+    private final static long SETTLE_TIME = 10_000;
+    /**
+     * Timeout (in milliseconds) given to executions that must time out.
+     */
+    private final static long SHORT_TIMEOUT = 200;
+    /**
+     * Timeout (in milliseconds) given to executions that must be cancelled (which happens way before).
+     */
+    private final static long LONG_TIMEOUT = 10_000;
+    /**
+     * Time (in milliseconds) after which executions that must be cancelled are cancelled.
+     */
+    private final static long CANCEL_DELAY = 300;
+
+    /**
+     * Program that echoes its standard input.
+     */
+    private final static String ECHO_PROGRAM = "#include <stdio.h>\n"
+            + "int main(void) { int c; while ((c = getchar()) != EOF) putchar(c); return 0; }";
+    /**
+     * Program that does not compile.
+     */
+    private final static String COMPILE_ERROR_PROGRAM = "int main( {";
+    /**
+     * Program that fails.
+     */
+    private final static String FAILING_PROGRAM = "int main(void) { return 3; }";
+    /**
+     * Program that crashes with a segmentation fault.
+     */
+    private final static String SEGFAULT_PROGRAM = "int main(void) { volatile int *p = 0; *p = 1; return 0; }";
+    /**
+     * Program that crashes by aborting.
+     */
+    private final static String ABORT_PROGRAM = "#include <stdlib.h>\nint main(void) { abort(); }";
+    /**
+     * Amount of lines printed by the {@link #HUGE_OUTPUT_PROGRAM} (40 bytes each, i.e 8 megabytes).
+     */
+    private final static int HUGE_OUTPUT_LINES = 200_000;
+    /**
+     * Program that prints a huge standard output.
+     */
+    private final static String HUGE_OUTPUT_PROGRAM = "#include <stdio.h>\n"
+            + "int main(void) { for (int i = 0; i < " + HUGE_OUTPUT_LINES + "; i++) printf(\"%039d\\n\", i); }";
+    /**
+     * Program that never finishes.
+     */
+    private final static String ENDLESS_PROGRAM = "int main(void) { for (;;); }";
+    /**
+     * Standard inputs given to the programs (few of them, so referenced inputs are found in the store).
+     */
+    private final static List<List<String>> INPUTS = List.of(
+            List.of("hello"),
+            List.of("1 2 3", "4 5 6"),
+            List.of("a", "b", "c", "d")
+    );
+
+
+    /**
+     * The base working directory of the runner.
+     */
+    private Path baseWorkingDir;
+    /**
+     * The directory of the {@link InputStore}.
+     */
+    private Path inputStoreDir;
+    /**
+     * The {@link ProcessWatchdog} used by the runner.
+     */
+    private ProcessWatchdog watchdog;
+    /**
+     * The {@link LauncherProcessSpawner} used by the runner (or {@code null} if the JVM is forked).
+     */
+    private LauncherProcessSpawner launcher;
+    /**
+     * The {@link OperatingSystemProcessCodeRunner} being soaked.
+     */
+    private OperatingSystemProcessCodeRunner runner;
+    /**
+     * The {@link ResourceUsageProbe} used to check that processes are reaped.
+     */
+    private ResourceUsageProbe probe;
+    /**
+     * The {@link ResourceUsageTrend} that samples the resources usage during the soak.
+     */
+    private ResourceUsageTrend trend;
+    /**
+     * The {@link ScheduledExecutorService} used to cancel executions.
+     */
+    private ScheduledExecutorService canceller;
+
+
+    @Before
+    public void setUp() throws IOException {
+        final var meterRegistry = new SimpleMeterRegistry();
+        baseWorkingDir = Files.createTempDirectory("soak-working-dirs");
+        inputStoreDir = Files.createTempDirectory("soak-inputs");
+        final var inputStore = new InputStore(inputStoreDir.toString(), 1024 * 1024, meterRegistry);
+        inputStore.afterPropertiesSet();
+        watchdog = new ProcessWatchdog(meterRegistry);
+        final ProcessSpawner spawner;
+        final var launcherCommand = System.getProperty("soak.launcher", "");
+        if (launcherCommand.isEmpty()) {
+            spawner = new ProcessBuilderSpawner(meterRegistry);
+        } else {
+            launcher = new LauncherProcessSpawner(launcherCommand, 5000, meterRegistry);
+            launcher.afterPropertiesSet();
+            spawner = launcher;
+        }
+        final var cRunner = new File(System.getProperty(
+                "soak.c-runner",
+                "../../executor-service-application/executors/c.sh"
+        ));
+        Assert.assertTrue("The C runner script must exist: " + cRunner, cRunner.isFile());
+        runner = new OperatingSystemProcessCodeRunner(
+                baseWorkingDir.toString(),
+                LONG_TIMEOUT,
+                LONG_TIMEOUT,
+                2000,
+                true,
+                Map.of(Language.C, cRunner.getAbsolutePath()),
+                null,
+                inputStore,
+                spawner,
+                watchdog,
+                null
+        );
+        runner.afterPropertiesSet();
+        probe = new ResourceUsageProbe(baseWorkingDir.toString());
+        trend = new ResourceUsageTrend(
+                baseWorkingDir.toString(),
+                Long.getLong("soak.sample-interval", 10_000),
+                Integer.getInteger("soak.window-size", 6),
+                launcher == null ? 0 : 1
+        );
+        canceller = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        trend.stop();
+        canceller.shutdownNow();
+        if (launcher != null) {
+            launcher.destroy();
+        }
+        watchdog.destroy();
+        for (final var directory : List.of(baseWorkingDir, inputStoreDir)) {
+            try (final var paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+
+    /**
+     * Runs the mix of executions for the configured duration, and checks that all the expected outcomes happened,
+     * that the baselines of the resources did not keep growing (sampling them after a warm-up),
+     * and that no process or working directory is left behind.
+     */
+    @Test
+    public void resourcesDoNotGrowUnderMixedLoad() throws InterruptedException {
+        final var duration = Long.getLong("soak.duration", 600_000);
+        final var concurrency = Integer.getInteger("soak.concurrency", 4);
+        final var maxGrowingWindows = Integer.getInteger("soak.max-growing-windows", 5);
+        final var warmUp = Math.min(duration / 10, 60_000);
+
+        final var outcomes = new ConcurrentHashMap<Kind, AtomicLong>();
+        final var failures = new ConcurrentLinkedQueue<Throwable>();
+        run(warmUp, concurrency, outcomes, failures);
+        LOGGER.info("Usage after warm-up: {}", trend.current());
+        outcomes.clear();
+        trend.start();
+        run(duration - warmUp, concurrency, outcomes, failures);
+        trend.stop();
+        settle();
+        final var usage = trend.current();
+        LOGGER.info("Usage after soak: {}. Outcomes: {}", usage, outcomes);
+
+        Assert.assertTrue("Unexpected failures: " + failures, failures.isEmpty());
+        for (final var kind : Kind.values()) {
+            Assert.assertTrue("No " + kind + " execution was performed", outcomes.containsKey(kind));
+        }
+        trend.assertNotGrowing(maxGrowingWindows);
+        Assert.assertEquals("Processes were left behind", 0, usage.get("child-processes"), 0);
+        Assert.assertEquals("Working directories were left behind", 0, usage.get("working-directories"), 0);
+    }
+
+
+    /**
+     * Runs the mix of executions with the given {@code concurrency}, for the given {@code duration}.
+     *
+     * @param duration    How long (in milliseconds) executions are run.
+     * @param concurrency How many executions are run at the same time.
+     * @param outcomes    The amount of executions of each {@link Kind} (that had the expected outcome).
+     * @param failures    The unexpected failures.
+     * @throws InterruptedException If interrupted while waiting for the executions to finish.
+     */
+    private void run(
+            final long duration,
+            final int concurrency,
+            final Map<Kind, AtomicLong> outcomes,
+            final Queue<Throwable> failures) throws InterruptedException {
+        final var end = System.currentTimeMillis() + duration;
+        final var pool = Executors.newFixedThreadPool(concurrency);
+        for (int worker = 0; worker < concurrency; worker++) {
+            final var offset = worker;
+            pool.execute(() -> {
+                for (long i = offset; System.currentTimeMillis() < end; i++) {
+                    try {
+                        final var kind = Kind.values()[(int) (i % Kind.values().length)];
+                        execute(kind, INPUTS.get((int) (i % INPUTS.size())));
+                        outcomes.computeIfAbsent(kind, ignored -> new AtomicLong()).incrementAndGet();
+                    } catch (final Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        final var finished = pool.awaitTermination(duration + LONG_TIMEOUT + SETTLE_TIME, TimeUnit.MILLISECONDS);
+        Assert.assertTrue("The executions did not finish", finished);
+    }
+
+    /**
+     * Performs an execution of the given {@code kind}, checking that it has the expected outcome.
+     *
+     * @param kind  The {@link Kind} of execution.
+     * @param input The standard input given to the program.
+     * @throws UnknownInputException     If a referenced input is not known (not expected).
+     * @throws ExecutionExpiredException If the execution expires (not expected, as there is no deadline).
+     */
+    private void execute(final Kind kind, final List<String> input)
+            throws UnknownInputException, ExecutionExpiredException {
+        final var cancellation = new ExecutionCancellation();
+        var context = ExecutionContext.empty().withStdinStorage(new StdinStorage()).withCancellation(cancellation);
+        final ExecutionRequest request;
+        switch (kind) {
+            case COMPLETED:
+                request = request(ECHO_PROGRAM, input, LONG_TIMEOUT);
+                break;
+            case COMPILE_ERROR:
+                request = request(COMPILE_ERROR_PROGRAM, input, LONG_TIMEOUT);
+                break;
+            case FAILED:
+                request = request(FAILING_PROGRAM, input, LONG_TIMEOUT);
+                break;
+            case SEGFAULT:
+                request = request(SEGFAULT_PROGRAM, input, LONG_TIMEOUT);
+                break;
+            case ABORT:
+                request = request(ABORT_PROGRAM, input, LONG_TIMEOUT);
+                break;
+            case HUGE_OUTPUT:
+                request = request(HUGE_OUTPUT_PROGRAM, input, LONG_TIMEOUT);
+                break;
+            case TIMEOUT:
+                request = request(ENDLESS_PROGRAM, input, SHORT_TIMEOUT);
+                break;
+            case CANCELLED:
+                request = request(ENDLESS_PROGRAM, input, LONG_TIMEOUT);
+                canceller.schedule(cancellation::cancel, CANCEL_DELAY, TimeUnit.MILLISECONDS);
+                break;
+            case REFERENCED_INPUT:
+                request = request(ECHO_PROGRAM, Collections.emptyList(), LONG_TIMEOUT);
+                context = context.withStdinDigest(StdinDigests.digest(input)); // Stored by previous executions
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+        final ExecutionResponse response;
+        try {
+            response = runner.processExecutionRequest(request, context);
+        } catch (final ExecutionCancelledException e) {
+            Assert.assertEquals("Unexpected cancellation", Kind.CANCELLED, kind);
+            return;
+        }
+        Assert.assertNotEquals("Not cancelled", Kind.CANCELLED, kind);
+        switch (kind) {
+            case COMPLETED:
+            case REFERENCED_INPUT:
+                Assert.assertEquals(ExecutionResponse.ExecutionResult.COMPLETED, response.getResult());
+                Assert.assertEquals(input, response.getStdout());
+                break;
+            case HUGE_OUTPUT:
+                Assert.assertEquals(ExecutionResponse.ExecutionResult.COMPLETED, response.getResult());
+                Assert.assertEquals(HUGE_OUTPUT_LINES, response.getStdout().size());
+                break;
+            case COMPILE_ERROR:
+                Assert.assertEquals(ExecutionResponse.ExecutionResult.COMPILE_ERROR, response.getResult());
+                break;
+            case FAILED:
+                Assert.assertEquals(ExecutionResponse.ExecutionResult.UNKNOWN_ERROR, response.getResult());
+                break;
+            case SEGFAULT:
+            case ABORT:
+                // Killed by a signal (the exit code reported by the shell is 128 + the signal number)
+                Assert.assertEquals(ExecutionResponse.ExecutionResult.UNKNOWN_ERROR, response.getResult());
+                Assert.assertTrue("Not killed by a signal", response.getExitCode() > 128);
+                break;
+            case TIMEOUT:
+                Assert.assertEquals(ExecutionResponse.ExecutionResult.TIMEOUT, response.getResult());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Waits (up to the {@link #SETTLE_TIME}) till the last processes are reaped.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private void settle() throws InterruptedException {
+        final var end = System.currentTimeMillis() + SETTLE_TIME;
+        while (System.currentTimeMillis() < end && probe.childProcesses().orElse(0) > (launcher == null ? 0 : 1)) {
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * Creates an {@link ExecutionRequest} of C code.
+     *
+     * @param code    The code to be run.
+     * @param stdin   The standard input given to the program.
+     * @param timeout The timeout (in milliseconds) given to the program.
+     * @return The created {@link ExecutionRequest}.
+     */
+    private static ExecutionRequest request(final String code, final List<String> stdin, final long timeout) {
+        return new ExecutionRequest(code, Collections.emptyList(), stdin, "", timeout, "main.c", Language.C);
+    }
+
+
+    /**
+     * The kinds of executions that are performed (each of them with an expected outcome).
+     */
+    private enum Kind {
+        /**
+         * A program that echoes its standard input, and completes.
+         */
+        COMPLETED,
+        /**
+         * A program that does not compile.
+         */
+        COMPILE_ERROR,
+        /**
+         * A program that exits with an error code.
+         */
+        FAILED,
+        /**
+         * A program that crashes with a segmentation fault.
+         */
+        SEGFAULT,
+        /**
+         * A program that crashes by aborting.
+         */
+        ABORT,
+        /**
+         * A program that prints a huge standard output, and completes.
+         */
+        HUGE_OUTPUT,
+        /**
+         * A program that never finishes, and times out.
+         */
+        TIMEOUT,
+        /**
+         * A program that never finishes, and is cancelled.
+         */
+        CANCELLED,
+        /**
+         * A program that echoes a standard input referenced by digest (stored by a previous execution).
+         */
+        REFERENCED_INPUT
+    }
+}
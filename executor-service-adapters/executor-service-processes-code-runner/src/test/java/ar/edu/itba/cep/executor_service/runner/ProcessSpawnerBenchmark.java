@@ -0,0 +1,172 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark of the {@link ProcessSpawner}s.
+ * It spawns a trivial command many times through the {@link ProcessBuilderSpawner} (i.e forking the JVM)
+ * and through the {@link LauncherProcessSpawner}, and reports the p50 and p99 latencies of each of them
+ * (both till the process is spawned, and till it finishes), so they can be compared with a large heap
+ * (which is what makes forking the JVM expensive).
+ * It is excluded from the regular build, and run with the {@code spawn-benchmark} profile
+ * (i.e {@code mvn test -Pspawn-benchmark}), which also sets the heap of the JVM and pre-touches it.
+ * It compiles the spawn launcher, so gcc must be installed.
+ * The following system properties can be set (the {@code spawn-benchmark} profile sets them from the Maven
+ * properties with the same name):
+ * <ul>
+ * <li>{@code benchmark.spawns}: How many processes are spawned (and measured) with each spawner.</li>
+ * <li>{@code benchmark.warm-up-spawns}: How many processes are spawned with each spawner before measuring.</li>
+ * <li>{@code benchmark.command}: The trivial command that is spawned.</li>
+ * <li>{@code benchmark.launcher-source}: Path to the source of the spawn launcher.</li>
+ * </ul>
+ */
+public class ProcessSpawnerBenchmark {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ProcessSpawnerBenchmark.class);
+
+
+    /**
+     * The working directory of the spawned processes (which also holds the compiled launcher).
+     */
+    private Path workingDir;
+    /**
+     * The empty file used as the standard input of the spawned processes.
+     */
+    private File stdin;
+    /**
+     * The file used as the standard output of the spawned processes.
+     */
+    private File stdout;
+    /**
+     * The file used as the standard error of the spawned processes.
+     */
+    private File stderr;
+    /**
+     * The {@link LauncherProcessSpawner} being benchmarked.
+     */
+    private LauncherProcessSpawner launcher;
+    /**
+     * The {@link ProcessBuilderSpawner} being benchmarked.
+     */
+    private ProcessBuilderSpawner processBuilder;
+
+
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        final var meterRegistry = new SimpleMeterRegistry();
+        workingDir = Files.createTempDirectory("spawn-benchmark");
+        stdin = Files.createFile(workingDir.resolve("stdin")).toFile();
+        stdout = workingDir.resolve("stdout").toFile();
+        stderr = workingDir.resolve("stderr").toFile();
+        final var launcherSource = new File(System.getProperty(
+                "benchmark.launcher-source",
+                "../../executor-service-application/executors/spawn-launcher.c"
+        ));
+        Assert.assertTrue("The launcher source must exist: " + launcherSource, launcherSource.isFile());
+        final var launcherCommand = workingDir.resolve("spawn-launcher").toString();
+        final var gcc = new ProcessBuilder("gcc", "-O2", "-o", launcherCommand, launcherSource.getAbsolutePath())
+                .inheritIO()
+                .start();
+        Assert.assertEquals("Could not compile the launcher", 0, gcc.waitFor());
+        launcher = new LauncherProcessSpawner(launcherCommand, 5000, meterRegistry);
+        launcher.afterPropertiesSet();
+        processBuilder = new ProcessBuilderSpawner(meterRegistry);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        launcher.destroy();
+        try (final var paths = Files.walk(workingDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+
+    /**
+     * Spawns the trivial command with each spawner, reporting their latencies.
+     */
+    @Test
+    public void reportSpawnLatencies() throws IOException, InterruptedException {
+        final var spawns = Integer.getInteger("benchmark.spawns", 1000);
+        final var warmUpSpawns = Integer.getInteger("benchmark.warm-up-spawns", 100);
+        final var command = List.of(System.getProperty("benchmark.command", "true"));
+        final var runtime = Runtime.getRuntime();
+        LOGGER.info(
+                "Spawning {} with a heap of {} MiB ({} MiB committed)",
+                command,
+                runtime.maxMemory() / (1024 * 1024),
+                runtime.totalMemory() / (1024 * 1024)
+        );
+
+        for (final var spawner : List.<ProcessSpawner>of(processBuilder, launcher)) {
+            measure(spawner, command, warmUpSpawns);
+            final var latencies = measure(spawner, command, spawns);
+            LOGGER.info(
+                    "{}: spawn p50 = {} us, p99 = {} us; spawn and wait p50 = {} us, p99 = {} us",
+                    spawner.getClass().getSimpleName(),
+                    percentile(latencies[0], 0.50) / 1000,
+                    percentile(latencies[0], 0.99) / 1000,
+                    percentile(latencies[1], 0.50) / 1000,
+                    percentile(latencies[1], 0.99) / 1000
+            );
+        }
+    }
+
+
+    /**
+     * Spawns the given {@code command} the given amount of {@code times} (one at a time) with the given
+     * {@code spawner}, waiting for each process to finish.
+     *
+     * @param spawner The {@link ProcessSpawner} to be measured.
+     * @param command The command to be spawned.
+     * @param times   How many times the command is spawned.
+     * @return The latencies (in nanoseconds) till each process is spawned (first array),
+     * and till each process finishes (second array).
+     * @throws IOException          If a process could not be spawned.
+     * @throws InterruptedException If interrupted while waiting for a process.
+     */
+    private long[][] measure(final ProcessSpawner spawner, final List<String> command, final int times)
+            throws IOException, InterruptedException {
+        final var spawnLatencies = new long[times];
+        final var totalLatencies = new long[times];
+        for (int i = 0; i < times; i++) {
+            final var start = System.nanoTime();
+            final var process = spawner.spawn(command, Map.of(), workingDir.toFile(), stdin, stdout, stderr);
+            spawnLatencies[i] = System.nanoTime() - start;
+            Assert.assertEquals("The command failed", 0, process.waitFor());
+            totalLatencies[i] = System.nanoTime() - start;
+        }
+        return new long[][]{spawnLatencies, totalLatencies};
+    }
+
+    /**
+     * Returns the given {@code percentile} of the given {@code latencies} (using the nearest-rank method).
+     *
+     * @param latencies  The latencies (sorted in place).
+     * @param percentile The percentile (between 0 and 1).
+     * @return The latency at the given percentile.
+     */
+    private static long percentile(final long[] latencies, final double percentile) {
+        Arrays.sort(latencies);
+        final var rank = (int) Math.ceil(percentile * latencies.length);
+        return latencies[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,260 @@
+package ar.edu.itba.cep.executor_service.runner;
+
+import org.junit.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Samples the usage of the resources that can leak in a long-lived executor node (i.e file descriptors, threads,
+ * child processes, heap after GC, working directories and the disk used in the base working directory)
+ * on a schedule while a soak test runs, and checks their trend.
+ * Samples are grouped in windows, and the baseline of each window (i.e its min. value) is kept, as usage depends
+ * on the load at the moment of sampling. A resource is considered to leak when its baseline keeps growing
+ * (i.e grows in each of the last windows).
+ * Used by the soak tests of this module and of the modules that run it (it is packaged in the tests jar).
+ */
+public final class ResourceUsageTrend {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ResourceUsageTrend.class);
+
+
+    /**
+     * Time (in milliseconds) between samples.
+     */
+    private final long sampleInterval;
+    /**
+     * The amount of samples in a window.
+     */
+    private final int windowSize;
+    /**
+     * The sampled resources, by name.
+     */
+    private final Map<String, Resource> resources;
+    /**
+     * The {@link ScheduledExecutorService} that periodically samples the resources.
+     */
+    private final ScheduledExecutorService scheduler;
+
+
+    /**
+     * Constructor.
+     *
+     * @param baseWorkingDir    Base working directory of the runner (i.e where working directories are created).
+     * @param sampleInterval    Time (in milliseconds) between samples.
+     * @param windowSize        The amount of samples in a window.
+     * @param ownChildProcesses The amount of child processes that are not spawned by executions
+     *                          (e.g the spawn launcher), which are not taken into account.
+     */
+    public ResourceUsageTrend(
+            final String baseWorkingDir,
+            final long sampleInterval,
+            final int windowSize,
+            final int ownChildProcesses) {
+        this.sampleInterval = sampleInterval;
+        this.windowSize = windowSize;
+        final var probe = new ResourceUsageProbe(baseWorkingDir);
+        final var baseWorkingDirPath = Paths.get(baseWorkingDir);
+        this.resources = new LinkedHashMap<>();
+        this.resources.put("open-files", new Resource(() -> probe.openFiles().orElse(Double.NaN), 0));
+        this.resources.put("threads", new Resource(
+                () -> (double) ManagementFactory.getThreadMXBean().getThreadCount(),
+                0
+        ));
+        this.resources.put("child-processes", new Resource(
+                () -> probe.childProcesses().orElse(0) - ownChildProcesses,
+                0
+        ));
+        this.resources.put("heap-after-gc", new Resource(
+                () -> {
+                    System.gc(); // So the baseline is not hidden by the garbage left by the executions
+                    return probe.heapAfterGc().orElse(Double.NaN);
+                },
+                1024 * 1024 // Tolerate noise of one megabyte
+        ));
+        this.resources.put("working-directories", new Resource(() -> probe.workingDirectories().orElse(Double.NaN), 0));
+        this.resources.put("base-working-directory-disk-usage", new Resource(() -> size(baseWorkingDirPath), 0));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "resource-usage-trend");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Starts sampling the resources.
+     */
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::sample, 0, sampleInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling the resources.
+     *
+     * @throws InterruptedException If interrupted while waiting for the current sample to finish.
+     */
+    public void stop() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(sampleInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Samples the resources once, out of the schedule (it does not affect the windows).
+     *
+     * @return The usage of each resource, by name.
+     */
+    public Map<String, Double> current() {
+        final var usage = new LinkedHashMap<String, Double>();
+        resources.forEach((name, resource) -> usage.put(name, resource.reader.get()));
+        return usage;
+    }
+
+    /**
+     * @return The baselines of the completed windows of each resource, by name.
+     */
+    public synchronized Map<String, List<Double>> getBaselines() {
+        final var baselines = new LinkedHashMap<String, List<Double>>();
+        resources.forEach((name, resource) -> baselines.put(name, List.copyOf(resource.baselines)));
+        return baselines;
+    }
+
+    /**
+     * Checks that no resource leaks (i.e that no baseline grew in each of the last {@code maxGrowingWindows}),
+     * failing otherwise. There must be more than {@code maxGrowingWindows} completed windows, so the trend is known.
+     *
+     * @param maxGrowingWindows The amount of consecutive windows in which the baseline of a resource must grow
+     *                          to consider that it leaks.
+     */
+    public synchronized void assertNotGrowing(final int maxGrowingWindows) {
+        final var baselines = getBaselines();
+        LOGGER.info("Baselines per window: {}", baselines);
+        baselines.forEach((name, windows) -> {
+            Assert.assertTrue(
+                    "Only " + windows.size() + " windows of " + name + " were completed. The soak is too short",
+                    windows.size() > maxGrowingWindows
+            );
+            final var tolerance = resources.get(name).tolerance;
+            final var last = windows.subList(windows.size() - maxGrowingWindows - 1, windows.size());
+            var growing = true;
+            for (int i = 1; i < last.size() && growing; i++) {
+                growing = last.get(i) > last.get(i - 1) + tolerance;
+            }
+            Assert.assertFalse(
+                    "The baseline of " + name + " kept growing in the last " + maxGrowingWindows + " windows: " + last,
+                    growing
+            );
+        });
+    }
+
+
+    /**
+     * Samples all the resources, completing the windows when needed.
+     */
+    private synchronized void sample() {
+        resources.forEach((name, resource) -> {
+            try {
+                resource.sample();
+            } catch (final Throwable e) {
+                LOGGER.error("Could not sample resource {}", name, e); // Must not kill the scheduler
+            }
+        });
+    }
+
+    /**
+     * Returns the amount of bytes used by the files in the given {@code directory}.
+     * Files that are deleted while being walked (e.g because the execution finished) are not taken into account.
+     *
+     * @param directory The {@link Path} of the directory.
+     * @return The amount of bytes.
+     */
+    private static double size(final Path directory) {
+        try (final var paths = Files.walk(directory)) {
+            return paths.mapToLong(path -> {
+                try {
+                    final var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    return attributes.isRegularFile() ? attributes.size() : 0;
+                } catch (final IOException e) {
+                    return 0; // Already deleted
+                }
+            }).sum();
+        } catch (final IOException | RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+
+    /**
+     * A sampled resource.
+     */
+    private final class Resource {
+
+        /**
+         * Reads the current usage of the resource ({@link Double#NaN} if it could not be read).
+         */
+        private final Supplier<Double> reader;
+        /**
+         * The amount by which a baseline must exceed the previous one to consider that it grew.
+         */
+        private final double tolerance;
+        /**
+         * The baselines of the completed windows.
+         */
+        private final List<Double> baselines;
+        /**
+         * The amount of samples in the current window.
+         */
+        private int samples;
+        /**
+         * The baseline (i.e min. value) of the current window.
+         */
+        private double baseline;
+
+
+        /**
+         * Constructor.
+         *
+         * @param reader    Reads the current usage of the resource ({@link Double#NaN} if it could not be read).
+         * @param tolerance The amount by which a baseline must exceed the previous one to consider that it grew.
+         */
+        private Resource(final Supplier<Double> reader, final double tolerance) {
+            this.reader = reader;
+            this.tolerance = tolerance;
+            this.baselines = new ArrayList<>();
+            this.samples = 0;
+            this.baseline = Double.POSITIVE_INFINITY;
+        }
+
+
+        /**
+         * Samples the resource, keeping the baseline of the window when it is completed.
+         */
+        private void sample() {
+            final var value = reader.get();
+            if (value.isNaN()) {
+                return;
+            }
+            baseline = Math.min(baseline, value);
+            if (++samples < windowSize) {
+                return;
+            }
+            baselines.add(baseline);
+            baseline = Double.POSITIVE_INFINITY;
+            samples = 0;
+        }
+    }
+}
@@ -64,7 +64,8 @@ function report_initialization_error {
 }
 
 # ---
-# Reports a compile error (i.e stores in a the file with the given name the COMPILE_ERROR value).
+# Reports a compile error (i.e stores in a the file with the given name the COMPILE_ERROR value,
+# or the TIMEOUT value if the compiler was timed-out).
 #
 # @param compiler_exit_code ($1): The exit code the compiler returned, which is then returned by this function.
 # @param file_name          ($2): The name given to the file where the result will be stored.
@@ -74,7 +75,13 @@ function report_compile_error {
     local COMPILE_RESULT=$1
     local FILE_NAME=$2
 
-    store_result COMPILE_ERROR ${FILE_NAME}
+    # First check if the result code is 124 (timeout). Check http://man7.org/linux/man-pages/man1/timeout.1.html
+    if [[ ${COMPILE_RESULT} -eq 124 ]]
+    then
+        store_result TIMEOUT ${FILE_NAME};
+    else
+        store_result COMPILE_ERROR ${FILE_NAME};
+    fi
     return ${COMPILE_RESULT};
 }
 
@@ -114,6 +121,24 @@ function report_completed {
     store_result COMPLETED ${FILE_NAME}
 }
 
+# ---
+# Stores in the file with the given name the given mark, together with the current time (in microseconds since epoch).
+# Used to let the caller know when each phase starts and ends. Nothing is stored if no file name is given.
+#
+# @param mark       ($1): The mark to be stored.
+# @param file_name  ($2): The name given to the file where the mark will be stored.
+# @return 0 if any error occurred while storing the mark, or any other value otherwise.
+# ---
+function store_mark {
+    local MARK=$1
+    local FILE_NAME=$2
+
+    if [[ -n "${FILE_NAME}" ]]
+    then
+        echo "${MARK} $(date +%s%6N)" >> "${FILE_NAME}"
+    fi
+}
+
 
 # --------------------------------
 # Execution phases
@@ -137,15 +162,17 @@ function initialize_code {
 # ---
 # Compiles code.
 #
-# @param flags          ($1): The compiler flags.
-# @param main_file_name ($2): The name of the file where the code is stored.
-# @return 0 if any compiler error occurs, or any other value otherwise.
+# @param timeout        ($1): The timeout given to compile (0 means no timeout).
+# @param flags          ($2): The compiler flags.
+# @param main_file_name ($3): The name of the file where the code is stored.
+# @return 0 if any compiler error occurs, 124 if there is a timeout, or any other value otherwise.
 # ---
 function compile_code {
-    local COMPILER_FLAGS=$1;
-    local MAIN_FILE_NAME=$2;
+    local COMPILE_TIMEOUT=$1;
+    local COMPILER_FLAGS=$2;
+    local MAIN_FILE_NAME=$3;
 
-    gcc ${COMPILER_FLAGS} ./"${MAIN_FILE_NAME}" -o "${MAIN_FILE_NAME%.*}" > /dev/null
+    timeout ${COMPILE_TIMEOUT} gcc ${COMPILER_FLAGS} ./"${MAIN_FILE_NAME}" -o "${MAIN_FILE_NAME%.*}" > /dev/null
 }
 
 # ---
@@ -188,6 +215,10 @@ declare COMPILER_FLAGS;
 # ---
 declare TIMEOUT;
 # ---
+# The timeout given to the compiler.
+# ---
+declare COMPILE_TIMEOUT;
+# ---
 # The name of the file where the results will be stored.
 # ---
 declare RESULT_FILE_NAME;
@@ -195,6 +226,10 @@ declare RESULT_FILE_NAME;
 # The name of the file where the code will be copied.
 # ---
 declare MAIN_FILE_NAME;
+# ---
+# The name of the file where the times at which each phase starts and ends will be stored.
+# ---
+declare TIMINGS_FILE_NAME;
 
 
 # First set the file name
@@ -208,8 +243,13 @@ fi
 initialize_code "${CODE}" "${MAIN_FILE_NAME}" || report_initialization_error $? "${RESULT_FILE_NAME}"
 
 # Compilation
-compile_code "${COMPILER_FLAGS}" "${MAIN_FILE_NAME}" || report_compile_error $? "${RESULT_FILE_NAME}"
+store_mark COMPILE_START "${TIMINGS_FILE_NAME}"
+compile_code "${COMPILE_TIMEOUT:-0}" "${COMPILER_FLAGS}" "${MAIN_FILE_NAME}" || report_compile_error $? "${RESULT_FILE_NAME}"
+store_mark COMPILE_END "${TIMINGS_FILE_NAME}"
 
 # Execution
-run_code "${TIMEOUT}" "${MAIN_FILE_NAME}" "$@" && report_completed "${RESULT_FILE_NAME}" || report_failed $? "${RESULT_FILE_NAME}"
+store_mark RUN_START "${TIMINGS_FILE_NAME}"
+run_code "${TIMEOUT}" "${MAIN_FILE_NAME}" "$@" \
+    && { store_mark RUN_END "${TIMINGS_FILE_NAME}"; report_completed "${RESULT_FILE_NAME}"; } \
+    || { EXIT_CODE=$?; store_mark RUN_END "${TIMINGS_FILE_NAME}"; report_failed ${EXIT_CODE} "${RESULT_FILE_NAME}"; }
 
@@ -0,0 +1,307 @@
+#!/usr/bin/env ruby
+# Copyright 2018-2019 Bellini & Lobo
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#    http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+
+# Ruby zygote. This is a long-lived process that boots the interpreter once,
+# and then forks a child for each execution, avoiding paying the interpreter startup cost for each test case.
+# Nothing else than what a plain "ruby" command loads is preloaded, so the code behaves as with the ruby.sh executor.
+# For the same reason, no library is required by the zygote itself (e.g json), and all its stuff is defined
+# inside the RubyZygote module, which is removed from the child before running the code
+# (so the code can neither see nor overwrite it).
+#
+# Requests are received through stdin, one per line, with the following fields separated by a space,
+# each of them encoded in strict base64 (so they do not contain spaces nor line breaks, and can be empty):
+#   - id:               An identifier for the request, which is included in the response.
+#   - directory:        The working directory in which the code must be run.
+#   - code:             The code to be run.
+#   - main_file_name:   The name of the file where the code must be stored (can be empty, defaults to main.rb).
+#   - timeout:          The timeout given to the program, in seconds (can be empty, meaning no timeout).
+#   - result_file_name: The name of the file where the execution result must be stored.
+#   - stdin:            Path to the file to be used as the program's standard input.
+#   - stdout:           Path to the file to be used as the program's standard output.
+#   - stderr:           Path to the file to be used as the program's standard error.
+#   - args:             The arguments passed to the program (the rest of the fields, if any).
+#
+# Responses are written to stdout, one per line, with the following fields separated by a space:
+#   - id:        The identifier of the request being responded.
+#   - exit_code: The exit code of the program (124 in case of timeout, as the timeout command does,
+#                or a negative value if the zygote could not run the program).
+#   - fork_time: The time it took to start the child, in seconds.
+#
+# A running program can be killed (e.g because its execution was cancelled) by sending a line with the "kill" word,
+# followed by a space and the (plain, not encoded) id of its request. This kills the child's process group,
+# and the request is then responded as usual (with the exit code of the killed program).
+# Kill requests for unknown (or already responded) requests are ignored.
+#
+# Once the zygote is ready to receive requests, it writes a line with the "ready" word.
+# Results are stored in the result file (by the zygote, not by the child) with the same values
+# the ruby.sh executor stores.
+
+
+# =====================================================================================================================
+# WARNING: DO NOT PRINT IN STDOUT!! It is the channel used to send responses.
+# =====================================================================================================================
+
+module RubyZygote
+
+  # -------------------------------------------------------------------------------------------------------------------
+  # Helpers
+  # -------------------------------------------------------------------------------------------------------------------
+
+  # ---
+  # The exit code reported when the program is timed-out. Check http://man7.org/linux/man-pages/man1/timeout.1.html
+  # ---
+  TIMEOUT_EXIT_CODE = 124
+
+  # ---
+  # The default main file name.
+  # ---
+  DEFAULT_MAIN_FILE_NAME = 'main.rb'.freeze
+
+  # ---
+  # The amount of fields of a request (without counting the arguments).
+  # ---
+  REQUEST_FIELDS = 9
+
+  # ---
+  # The word that starts kill requests.
+  # ---
+  KILL_COMMAND = 'kill'.freeze
+
+  # ---
+  # The channel through which responses are sent. Duplicated as the child processes reopen the standard streams.
+  # ---
+  RESPONSES = STDOUT.dup
+  RESPONSES.sync = true
+
+  # ---
+  # Lock used to avoid interleaving responses written by different threads.
+  # ---
+  RESPONSES_LOCK = Mutex.new
+
+  # ---
+  # The pid of the child running the program of each accepted request, by request id
+  # (nil if the child was not forked yet).
+  # ---
+  CHILDREN = {}
+
+  # ---
+  # Ids of the accepted requests that were killed before their child was forked.
+  # ---
+  KILLED = {}
+
+  # ---
+  # Lock used to access the children and the killed requests.
+  # ---
+  CHILDREN_LOCK = Mutex.new
+
+  module_function
+
+  # ---
+  # Sends the response for the request with the given id to the requester.
+  # ---
+  def respond(id, exit_code, fork_time)
+    RESPONSES_LOCK.synchronize { RESPONSES.puts("#{id} #{exit_code} #{fork_time}") }
+  end
+
+  # ---
+  # Parses the given request line into a Hash. Returns nil if the line is malformed.
+  # ---
+  def parse_request(line)
+    fields = line.chomp.split(/ /, -1).map { |field| field.unpack1('m0').force_encoding(Encoding::UTF_8) }
+    return nil if fields.length < REQUEST_FIELDS
+    keys = %w[id directory code main_file_name timeout result_file_name stdin stdout stderr]
+    request = keys.zip(fields.shift(REQUEST_FIELDS)).to_h
+    request['args'] = fields
+    request
+  rescue ArgumentError
+    nil # Invalid base64
+  end
+
+  # ---
+  # Kills the process group whose leader has the given pid.
+  # ---
+  def kill_group(pid)
+    Process.kill('KILL', -pid) rescue Process.kill('KILL', pid) rescue nil
+  end
+
+  # ---
+  # Kills the program of the request with the given id if it is running,
+  # or marks the request as killed if its child was not forked yet (so it is killed as soon as it is).
+  # ---
+  def kill(id)
+    CHILDREN_LOCK.synchronize do
+      next unless CHILDREN.key?(id) # Unknown or already responded
+      pid = CHILDREN[id]
+      if pid.nil?
+        KILLED[id] = true
+      else
+        kill_group(pid)
+      end
+    end
+  end
+
+  # ---
+  # Stores the given result in the file with the given name, inside the given directory.
+  # ---
+  def store_result(directory, file_name, result)
+    File.write(File.join(directory, file_name), "#{result}\n")
+  end
+
+  # ---
+  # Returns the current time of the monotonic clock, in seconds.
+  # ---
+  def now
+    Process.clock_gettime(Process::CLOCK_MONOTONIC)
+  end
+
+
+  # --------------------------------
+  # Execution phases
+  # --------------------------------
+
+  # ---
+  # Initializes execution stuff (i.e creates the file with the code to be run).
+  # Returns the path of the created file.
+  # ---
+  def initialize_code(request)
+    main_file_name = request['main_file_name']
+    main_file_name = DEFAULT_MAIN_FILE_NAME if main_file_name.empty?
+    path = File.join(request['directory'], main_file_name)
+    File.write(path, "#{request['code']}\n")
+    path
+  end
+
+  # ---
+  # Runs the code in the given file. This is executed in the child process, and never returns.
+  # The code is loaded as the ruby command would run it (i.e in the top-level namespace),
+  # once the zygote's stuff was removed from it.
+  # ---
+  def run_code(request, main_file)
+    RESPONSES.close # The child must not be able to write responses.
+    Process.setsid # Become the leader of a new process group so the whole tree can be killed at once.
+    Dir.chdir(request['directory'])
+    STDIN.reopen(request['stdin'], 'r')
+    STDOUT.reopen(request['stdout'], 'w')
+    STDERR.reopen(request['stderr'], 'w')
+    STDOUT.sync = true
+    STDERR.sync = true
+    srand # Do not share the random seed with the zygote and the other children.
+    ARGV.replace(request['args'])
+    $0 = File.basename(main_file)
+    Object.send(:remove_const, :RubyZygote) # Constants below are still resolved lexically (i.e not through Object)
+
+    exit_code = begin
+      load(main_file, false)
+      0
+    rescue SystemExit => e
+      e.status
+    rescue Exception => e
+      STDERR.write(e.full_message(highlight: false)) rescue STDERR.puts("#{e.class}: #{e.message}")
+      1
+    end
+    STDOUT.flush rescue nil
+    STDERR.flush rescue nil
+    Process.exit!(exit_code)
+  end
+
+  # ---
+  # Processes the given request: forks a child that runs the code, waits for it (or kills it on timeout),
+  # stores the result and responds to the requester.
+  # ---
+  def process_request(request)
+    directory = request['directory']
+    result_file_name = request['result_file_name']
+
+    main_file = begin
+      initialize_code(request)
+    rescue StandardError
+      store_result(directory, result_file_name, 'INITIALIZATION_ERROR')
+      respond(request['id'], 1, 0)
+      return
+    end
+
+    fork_start = now
+    pid = Process.fork { run_code(request, main_file) }
+    fork_time = now - fork_start
+
+    waiter = Process.detach(pid)
+    CHILDREN_LOCK.synchronize do
+      if KILLED.delete(request['id'])
+        kill_group(pid)
+      else
+        CHILDREN[request['id']] = pid
+      end
+    end
+    timeout = request['timeout']
+    timed_out = waiter.join(timeout.empty? ? nil : timeout.to_f).nil?
+    kill_group(pid) if timed_out
+    status = waiter.value
+    CHILDREN_LOCK.synchronize { CHILDREN.delete(request['id']) } # Reaped, so its pid must not be killed anymore
+    exit_code = timed_out ? TIMEOUT_EXIT_CODE : (status.exitstatus || 128 + status.termsig.to_i)
+
+    if exit_code.zero?
+      store_result(directory, result_file_name, 'COMPLETED')
+    elsif exit_code == TIMEOUT_EXIT_CODE
+      store_result(directory, result_file_name, 'TIMEOUT')
+    else
+      store_result(directory, result_file_name, 'UNKNOWN_ERROR')
+    end
+    respond(request['id'], exit_code, fork_time)
+  end
+
+  # ---
+  # Receives requests through stdin (till it is closed), processing each of them in a new thread.
+  # ---
+  def serve
+    GC.start # Leave the heap as compact as possible before forking, in order to maximize shared pages.
+    RESPONSES_LOCK.synchronize { RESPONSES.puts('ready') }
+
+    STDIN.each_line do |line|
+      next if line.strip.empty?
+      command, id = line.split
+      if command == KILL_COMMAND
+        kill(id)
+        next
+      end
+      request = parse_request(line)
+      if request.nil?
+        STDERR.puts('Received a malformed request')
+        next
+      end
+      CHILDREN_LOCK.synchronize { CHILDREN[request['id']] = nil } # Accepted (so it can be killed from now on)
+      Thread.new(request) do |r|
+        begin
+          process_request(r)
+        rescue StandardError => e
+          STDERR.puts("Could not process request #{r['id']}: #{e.message}")
+          respond(r['id'], -1, 0)
+        ensure
+          CHILDREN_LOCK.synchronize do
+            CHILDREN.delete(r['id'])
+            KILLED.delete(r['id'])
+          end
+        end
+      end
+    end
+  end
+end
+
+
+# ---------------------------------------------------------------------------------------------------------------------
+# Here starts the zygote
+# ---------------------------------------------------------------------------------------------------------------------
+
+RubyZygote.serve
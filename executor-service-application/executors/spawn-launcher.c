@@ -0,0 +1,332 @@
+/*
+ * Copyright 2018-2019 Bellini & Lobo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Spawn launcher. This is a small long-lived process that spawns runner command processes on behalf of the
+ * executor service, so the (large) service JVM does not need to be forked for each execution.
+ * Spawned processes get only the environment variables included in the request.
+ *
+ * Requests are received through stdin. Each request is a sequence of NUL-terminated fields:
+ *   id, directory, stdin path, stdout path, stderr path, argc, argv[0..argc), envc, envp[0..envc)
+ * where each environment entry has the "NAME=value" form.
+ * The argc and envc fields must be decimal numbers not greater than MAX_ARGC and MAX_ENVC, respectively,
+ * and requests must not be larger than MAX_REQUEST_SIZE. As the stream cannot be resynchronized after a malformed
+ * request, the launcher exits with a failure code if it receives one (the service restarts it).
+ *
+ * Responses are written to stdout, one per line:
+ *   S <id> <pid>       The process was started with the given pid.
+ *   F <id> <errno>     The process could not be started.
+ *   E <id> <code>      The process exited with the given code (128 + signal number if killed by a signal).
+ *
+ * Build with: gcc -O2 -o spawn-launcher spawn-launcher.c
+ */
+
+#define _GNU_SOURCE
+
+#include <errno.h>
+#include <fcntl.h>
+#include <poll.h>
+#include <signal.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/wait.h>
+#include <unistd.h>
+
+/* Amount of fixed fields at the beginning of a request (id, directory, stdin, stdout, stderr). */
+#define FIXED_FIELDS 5
+/* Exit code of a child that could not execute the command (as the shell does). */
+#define EXEC_FAILED_EXIT_CODE 127
+/* Max. amount of arguments of a command. */
+#define MAX_ARGC 4096
+/* Max. amount of environment variables of a process. */
+#define MAX_ENVC 1024
+/* Max. size of a request, in bytes. */
+#define MAX_REQUEST_SIZE (64 * 1024 * 1024)
+
+/* A process being run, which must be reported when it exits. */
+struct child {
+    pid_t pid;
+    char *id;
+};
+
+/* Processes being run. */
+static struct child *children = NULL;
+static size_t children_count = 0;
+static size_t children_capacity = 0;
+
+/* Pipe used to notify the main loop that a child has exited (i.e the self-pipe trick). */
+static int sigchld_pipe[2];
+
+/* Buffer holding the received bytes that were not processed yet. */
+static char *buffer = NULL;
+static size_t buffer_length = 0;
+static size_t buffer_capacity = 0;
+
+
+/* Writes to the SIGCHLD pipe, in order to wake up the main loop. */
+static void on_sigchld(int signal) {
+    (void) signal;
+    const int saved_errno = errno;
+    const char byte = 0;
+    (void) write(sigchld_pipe[1], &byte, 1);
+    errno = saved_errno;
+}
+
+/* Reports a malformed request and exits, as the stream cannot be resynchronized. */
+static void protocol_error(const char *message) {
+    fprintf(stderr, "spawn-launcher: malformed request (%s)\n", message);
+    exit(EXIT_FAILURE);
+}
+
+/* Parses a count field. Exits if it is not a decimal number between 0 and the given max. */
+static long parse_count(const char *field, const long max) {
+    char *end;
+    errno = 0;
+    const long value = strtol(field, &end, 10);
+    if (errno != 0 || end == field || *end != '\0' || value < 0 || value > max) {
+        protocol_error("invalid count");
+    }
+    return value;
+}
+
+/* Writes a response line and flushes it. */
+static void respond(const char type, const char *id, const long value) {
+    printf("%c %s %ld\n", type, id, value);
+    fflush(stdout);
+}
+
+/* Registers a child, in order to report it when it exits. */
+static void add_child(const pid_t pid, const char *id) {
+    if (children_count == children_capacity) {
+        children_capacity = children_capacity == 0 ? 16 : children_capacity * 2;
+        children = realloc(children, children_capacity * sizeof(struct child));
+        if (children == NULL) {
+            exit(EXIT_FAILURE);
+        }
+    }
+    children[children_count].pid = pid;
+    children[children_count].id = strdup(id);
+    children_count++;
+}
+
+/* Reaps the exited children, reporting them. */
+static void reap_children(void) {
+    int status;
+    pid_t pid;
+    while ((pid = waitpid(-1, &status, WNOHANG)) > 0) {
+        for (size_t i = 0; i < children_count; i++) {
+            if (children[i].pid != pid) {
+                continue;
+            }
+            const long code = WIFEXITED(status) ? WEXITSTATUS(status) : 128 + WTERMSIG(status);
+            respond('E', children[i].id, code);
+            free(children[i].id);
+            children[i] = children[--children_count];
+            break;
+        }
+    }
+}
+
+/* Opens the given path with the given flags into the given file descriptor. Returns -1 on error. */
+static int redirect(const char *path, const int flags, const int target) {
+    const int fd = open(path, flags, 0644);
+    if (fd < 0) {
+        return -1;
+    }
+    if (fd != target) {
+        if (dup2(fd, target) < 0) {
+            return -1;
+        }
+        close(fd);
+    }
+    return 0;
+}
+
+/* Spawns a process for the given request fields. */
+static void spawn(char **fields, char **argv, char **envp) {
+    const char *id = fields[0];
+    int error_pipe[2]; /* Used by the child to report exec errors. Closed on exec. */
+    if (pipe2(error_pipe, O_CLOEXEC) < 0) {
+        respond('F', id, errno);
+        return;
+    }
+    const pid_t pid = fork();
+    if (pid < 0) {
+        respond('F', id, errno);
+        close(error_pipe[0]);
+        close(error_pipe[1]);
+        return;
+    }
+    if (pid == 0) {
+        /* Child */
+        signal(SIGCHLD, SIG_DFL);
+        close(error_pipe[0]);
+        setsid();
+        if (chdir(fields[1]) < 0
+            || redirect(fields[2], O_RDONLY, STDIN_FILENO) < 0
+            || redirect(fields[3], O_WRONLY | O_CREAT | O_TRUNC, STDOUT_FILENO) < 0
+            || redirect(fields[4], O_WRONLY | O_CREAT | O_TRUNC, STDERR_FILENO) < 0) {
+            const int error = errno;
+            (void) write(error_pipe[1], &error, sizeof(error));
+            _exit(EXEC_FAILED_EXIT_CODE);
+        }
+        execvpe(argv[0], argv, envp);
+        const int error = errno;
+        (void) write(error_pipe[1], &error, sizeof(error));
+        _exit(EXEC_FAILED_EXIT_CODE);
+    }
+    /* Parent */
+    close(error_pipe[1]);
+    int error;
+    ssize_t read_bytes;
+    while ((read_bytes = read(error_pipe[0], &error, sizeof(error))) < 0 && errno == EINTR);
+    close(error_pipe[0]);
+    if (read_bytes == sizeof(error)) {
+        respond('F', id, error); /* The child will be reaped, but it is not registered, so it is not reported. */
+        return;
+    }
+    add_child(pid, id);
+    respond('S', id, pid);
+}
+
+/*
+ * Tries to parse a complete request from the beginning of the buffer, spawning the corresponding process.
+ * Returns the amount of consumed bytes, or 0 if the buffer does not contain a complete request yet.
+ */
+static size_t process_request(void) {
+    size_t fields_capacity = FIXED_FIELDS + 8;
+    char **fields = malloc(fields_capacity * sizeof(char *));
+    if (fields == NULL) {
+        exit(EXIT_FAILURE);
+    }
+    size_t fields_count = 0;
+    size_t position = 0;
+    long argc = -1;
+    long envc = -1;
+    size_t consumed = 0;
+
+    while (position < buffer_length) {
+        char *end = memchr(buffer + position, '\0', buffer_length - position);
+        if (end == NULL) {
+            break; /* Incomplete field */
+        }
+        if (fields_count + 1 >= fields_capacity) {
+            fields_capacity *= 2;
+            fields = realloc(fields, fields_capacity * sizeof(char *));
+            if (fields == NULL) {
+                exit(EXIT_FAILURE);
+            }
+        }
+        fields[fields_count++] = buffer + position;
+        position = (size_t) (end - buffer) + 1;
+
+        if (fields_count == FIXED_FIELDS + 1) {
+            argc = parse_count(fields[FIXED_FIELDS], MAX_ARGC);
+        } else if (argc >= 0 && fields_count == FIXED_FIELDS + 1 + (size_t) argc + 1) {
+            envc = parse_count(fields[fields_count - 1], MAX_ENVC);
+        }
+        if (envc >= 0 && fields_count == FIXED_FIELDS + 1 + (size_t) argc + 1 + (size_t) envc) {
+            consumed = position;
+            break;
+        }
+    }
+    if (consumed > 0) {
+        /* Build NULL terminated argv and envp arrays */
+        char **argv = malloc(((size_t) argc + 1) * sizeof(char *));
+        char **envp = malloc(((size_t) envc + 1) * sizeof(char *));
+        if (argv == NULL || envp == NULL) {
+            exit(EXIT_FAILURE);
+        }
+        memcpy(argv, fields + FIXED_FIELDS + 1, (size_t) argc * sizeof(char *));
+        argv[argc] = NULL;
+        memcpy(envp, fields + FIXED_FIELDS + 1 + argc + 1, (size_t) envc * sizeof(char *));
+        envp[envc] = NULL;
+        if (argc > 0) {
+            spawn(fields, argv, envp);
+        } else {
+            respond('F', fields[0], EINVAL);
+        }
+        free(argv);
+        free(envp);
+    }
+    free(fields);
+    return consumed;
+}
+
+/* Reads the available request bytes, processing the complete requests. Returns 0 on EOF. */
+static int read_requests(void) {
+    if (buffer_capacity - buffer_length < 65536) {
+        buffer_capacity = buffer_capacity == 0 ? 131072 : buffer_capacity * 2;
+        buffer = realloc(buffer, buffer_capacity);
+        if (buffer == NULL) {
+            exit(EXIT_FAILURE);
+        }
+    }
+    const ssize_t read_bytes = read(STDIN_FILENO, buffer + buffer_length, buffer_capacity - buffer_length);
+    if (read_bytes == 0) {
+        return 0;
+    }
+    if (read_bytes < 0) {
+        return errno == EINTR || errno == EAGAIN;
+    }
+    buffer_length += (size_t) read_bytes;
+    size_t consumed;
+    while (buffer_length > 0 && (consumed = process_request()) > 0) {
+        memmove(buffer, buffer + consumed, buffer_length - consumed);
+        buffer_length -= consumed;
+    }
+    if (buffer_length > MAX_REQUEST_SIZE) {
+        protocol_error("request too large"); /* The buffer only holds an incomplete request at this point. */
+    }
+    return 1;
+}
+
+int main(void) {
+    if (pipe2(sigchld_pipe, O_CLOEXEC | O_NONBLOCK) < 0) {
+        return EXIT_FAILURE;
+    }
+    struct sigaction action;
+    memset(&action, 0, sizeof(action));
+    action.sa_handler = on_sigchld;
+    action.sa_flags = SA_RESTART | SA_NOCLDSTOP;
+    sigaction(SIGCHLD, &action, NULL);
+    fcntl(STDIN_FILENO, F_SETFD, FD_CLOEXEC);
+    fcntl(STDOUT_FILENO, F_SETFD, FD_CLOEXEC);
+
+    struct pollfd fds[2] = {
+            {.fd = STDIN_FILENO, .events = POLLIN},
+            {.fd = sigchld_pipe[0], .events = POLLIN},
+    };
+    for (;;) {
+        if (poll(fds, 2, -1) < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            return EXIT_FAILURE;
+        }
+        if (fds[1].revents & POLLIN) {
+            char drain[64];
+            while (read(sigchld_pipe[0], drain, sizeof(drain)) > 0);
+            reap_children();
+        }
+        if (fds[0].revents & (POLLIN | POLLHUP)) {
+            if (!read_requests()) {
+                return EXIT_SUCCESS; /* The service closed the channel. */
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ public class Application {
     public static void main(String[] args) {
         new SpringApplicationBuilder(Application.class)
                 .bannerMode(Banner.Mode.OFF)
+                .initializers(new StartupLazyInitialization())
                 .build().run(args);
     }
 }
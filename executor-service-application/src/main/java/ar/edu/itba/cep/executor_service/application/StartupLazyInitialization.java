@@ -0,0 +1,98 @@
+package ar.edu.itba.cep.executor_service.application;
+
+import ar.edu.itba.cep.executor_service.application.config.StartupProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An {@link ApplicationContextInitializer} that, if enabled (see {@link StartupProperties#isLazyInitialization()}),
+ * makes beans be lazily initialized, so only those needed to start consuming commands are created at startup.
+ * Beans with Kafka listener methods, infrastructure beans, and the configured eager beans are not made lazy.
+ */
+public class StartupLazyInitialization implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(StartupLazyInitialization.class);
+
+    /**
+     * Name of the annotation that marks Kafka listener methods (whose beans must be created to start consuming).
+     */
+    private final static String KAFKA_LISTENER_ANNOTATION = "org.springframework.kafka.annotation.KafkaListener";
+
+
+    @Override
+    public void initialize(final ConfigurableApplicationContext applicationContext) {
+        final var properties = Binder.get(applicationContext.getEnvironment())
+                .bind(StartupProperties.PREFIX, StartupProperties.class)
+                .orElseGet(StartupProperties::new);
+        if (properties.isLazyInitialization()) {
+            applicationContext.addBeanFactoryPostProcessor(
+                    new LazyInitializationPostProcessor(new HashSet<>(properties.getEagerBeans()))
+            );
+        }
+    }
+
+
+    /**
+     * A {@link BeanFactoryPostProcessor} that makes beans be lazily initialized.
+     */
+    private static final class LazyInitializationPostProcessor implements BeanFactoryPostProcessor {
+
+        /**
+         * Names of the beans that must not be made lazy.
+         */
+        private final Set<String> eagerBeans;
+
+
+        /**
+         * Constructor.
+         *
+         * @param eagerBeans Names of the beans that must not be made lazy.
+         */
+        private LazyInitializationPostProcessor(final Set<String> eagerBeans) {
+            this.eagerBeans = eagerBeans;
+        }
+
+
+        @Override
+        public void postProcessBeanFactory(final ConfigurableListableBeanFactory beanFactory) {
+            var lazyBeans = 0;
+            for (final var name : beanFactory.getBeanDefinitionNames()) {
+                final var definition = beanFactory.getBeanDefinition(name);
+                if (mustBeEager(name, definition)) {
+                    continue;
+                }
+                definition.setLazyInit(true);
+                lazyBeans++;
+            }
+            LOGGER.info("{} beans will be lazily initialized", lazyBeans);
+        }
+
+        /**
+         * Indicates whether the bean with the given {@code name} and {@code definition} must be eagerly initialized.
+         *
+         * @param name       The name of the bean.
+         * @param definition The {@link BeanDefinition} of the bean.
+         * @return {@code true} if the bean must be eagerly initialized, or {@code false} otherwise.
+         */
+        private boolean mustBeEager(final String name, final BeanDefinition definition) {
+            return eagerBeans.contains(name)
+                    || definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE
+                    || definition instanceof AnnotatedBeanDefinition
+                    && ((AnnotatedBeanDefinition) definition).getMetadata()
+                    .hasAnnotatedMethods(KAFKA_LISTENER_ANNOTATION);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ar.edu.itba.cep.executor_service.application;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import ar.edu.itba.cep.executor_service.application.config.StartupProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Component that records the time it takes for the service to be ready (measured since the JVM started),
+ * and that makes the service exit once ready if requested (see {@link StartupProperties#isExitWhenReady()}).
+ */
+@Component
+public class StartupMonitor implements ApplicationListener<ApplicationReadyEvent> {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(StartupMonitor.class);
+
+
+    /**
+     * The {@link MeterRegistry} in which metrics are registered.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Indicates whether the service must exit once it is ready.
+     */
+    private final boolean exitWhenReady;
+
+
+    /**
+     * Constructor.
+     *
+     * @param meterRegistry The {@link MeterRegistry} in which metrics are registered.
+     * @param environment   The {@link Environment} from where the startup properties are taken.
+     */
+    @Autowired
+    public StartupMonitor(final MeterRegistry meterRegistry, final Environment environment) {
+        this.meterRegistry = meterRegistry;
+        this.exitWhenReady = environment.getProperty(
+                StartupProperties.PREFIX + ".exit-when-ready",
+                Boolean.class,
+                false
+        );
+    }
+
+
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        final long timeToReady = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("executor.startup.time-to-ready", () -> timeToReady, TimeUnit.MILLISECONDS)
+                .description("Time it took for the service to be ready, since the JVM started")
+                .register(meterRegistry);
+        LOGGER.info("Service ready {} ms after the JVM started", timeToReady);
+        if (exitWhenReady) {
+            LOGGER.info("Exiting, as requested");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
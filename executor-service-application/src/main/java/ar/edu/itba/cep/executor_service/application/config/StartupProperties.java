@@ -0,0 +1,42 @@
+package ar.edu.itba.cep.executor_service.application.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Configuration properties for the startup of the service.
+ * These are bound before the application context is refreshed
+ * (see {@link ar.edu.itba.cep.executor_service.application.StartupLazyInitialization}),
+ * so they are not registered as a {@link org.springframework.boot.context.properties.ConfigurationProperties} bean.
+ */
+@Getter
+@Setter
+public class StartupProperties {
+
+    /**
+     * Prefix for the properties of the service startup.
+     */
+    public static final String PREFIX = "startup";
+
+
+    /**
+     * Indicates whether beans are lazily initialized (i.e only those needed to start consuming commands,
+     * and those listed in {@link #eagerBeans}, are created when the service starts).
+     */
+    private boolean lazyInitialization = false;
+
+    /**
+     * Names of the beans that must be created when the service starts even if lazy initialization is enabled
+     * (e.g background monitors, which are not referenced by other beans).
+     */
+    private List<String> eagerBeans = new LinkedList<>();
+
+    /**
+     * Indicates whether the service must exit once it is ready
+     * (e.g to record the classes loaded during startup, in order to build a class data sharing archive).
+     */
+    private boolean exitWhenReady = false;
+}
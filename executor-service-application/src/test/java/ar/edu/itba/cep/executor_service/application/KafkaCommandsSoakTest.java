@@ -0,0 +1,512 @@
+package ar.edu.itba.cep.executor_service.application;
+
+import ar.edu.itba.cep.executor.Constants;
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.commands.CommandsRouting;
+import ar.edu.itba.cep.executor_service.runner.ResourceUsageTrend;
+import com.bellotapps.the_messenger.json.JacksonJsonPayloadSerializer;
+import com.bellotapps.the_messenger.producer.MessageBuilderFactory;
+import com.bellotapps.the_messenger.producer.MessageProducer;
+import com.bellotapps.the_messenger.producer.basic_factories.GenericMessageBuilderFactory;
+import com.bellotapps.the_messenger.transport.json.jackson.JacksonMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Soak test of the whole Kafka path (i.e commands consumed from the topics, executed by the code runner,
+ * and replied), against an embedded Kafka broker.
+ * It sends a mix of execution requests (completed, compile errors, runtime errors, crashes, large outputs, timeouts
+ * and cancellations, the latter broadcast through the control topic) for a long time, sampling the resources
+ * that can leak in a long-lived node on a schedule (see {@link ResourceUsageTrend}), and checks that their baselines
+ * do not keep growing, and that every request is replied with the expected outcome.
+ * It is excluded from the regular build, and run with the {@code soak} profile (i.e {@code mvn test -Psoak}).
+ * It uses the C runner script, so bash, coreutils and gcc must be installed.
+ * The {@code soak.*} system properties of the processes code runner soak test are supported
+ * (except for the launcher, as processes are spawned as configured for the application).
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        classes = Application.class,
+        properties = {
+                "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+                "spring.zipkin.enabled=false",
+                "code-runner.base-working-directory=${java.io.tmpdir}/executor-service-soak/working-directories/",
+                "code-runner.input-store.enabled=true", // As in the Docker image
+                "code-runner.input-store.directory=${java.io.tmpdir}/executor-service-soak/inputs/",
+                "code-runner.commands.c=${soak.c-runner:${user.dir}/executors/c.sh}",
+                "command-handler.routing.node-id=soak"
+        }
+)
+@EmbeddedKafka
+public class KafkaCommandsSoakTest {
+
+    /**
+     * The {@link Logger}.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(KafkaCommandsSoakTest.class);
+
+    /**
+     * Time (in milliseconds) given to the listeners to be assigned their partitions.
+     */
+    private final static long ASSIGNMENT_TIMEOUT = 60_000;
+    /**
+     * Time (in milliseconds) given to the last processes to be reaped once the soak finishes.
+     */
+    private final static long SETTLE_TIME = 10_000;
+    /**
+     * Timeout (in milliseconds) given to executions that must time out.
+     */
+    private final static long SHORT_TIMEOUT = 200;
+    /**
+     * Timeout (in milliseconds) given to executions that must be cancelled (which happens way before).
+     */
+    private final static long LONG_TIMEOUT = 10_000;
+    /**
+     * Time (in milliseconds) to wait for the reply of a request (besides its timeout).
+     */
+    private final static long REPLY_TIMEOUT = 60_000;
+    /**
+     * Time (in milliseconds) after which executions that must be cancelled are cancelled.
+     */
+    private final static long CANCEL_DELAY = 300;
+
+    /**
+     * Program that echoes its standard input.
+     */
+    private final static String ECHO_PROGRAM = "#include <stdio.h>\n"
+            + "int main(void) { int c; while ((c = getchar()) != EOF) putchar(c); return 0; }";
+    /**
+     * Program that does not compile.
+     */
+    private final static String COMPILE_ERROR_PROGRAM = "int main( {";
+    /**
+     * Program that fails.
+     */
+    private final static String FAILING_PROGRAM = "int main(void) { return 3; }";
+    /**
+     * Program that crashes with a segmentation fault.
+     */
+    private final static String SEGFAULT_PROGRAM = "int main(void) { volatile int *p = 0; *p = 1; return 0; }";
+    /**
+     * Program that crashes by aborting.
+     */
+    private final static String ABORT_PROGRAM = "#include <stdlib.h>\nint main(void) { abort(); }";
+    /**
+     * Program that prints a large standard output (40 bytes per line, i.e 512 kilobytes, as the reply must fit
+     * in a record of the default max. size).
+     */
+    private final static String LARGE_OUTPUT_PROGRAM = "#include <stdio.h>\n"
+            + "int main(void) { for (int i = 0; i < 13107; i++) printf(\"%039d\\n\", i); }";
+    /**
+     * Program that never finishes.
+     */
+    private final static String ENDLESS_PROGRAM = "int main(void) { for (;;); }";
+    /**
+     * Standard input given to the programs.
+     */
+    private final static List<String> INPUT = List.of("1 2 3", "4 5 6");
+
+
+    /**
+     * The {@link EmbeddedKafkaBroker} against which the soak runs.
+     */
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+    /**
+     * The {@link KafkaListenerEndpointRegistry} with the listeners of the commands.
+     */
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerEndpointRegistry;
+    /**
+     * The {@link MessageProducer} used to send the commands.
+     */
+    @Autowired
+    private MessageProducer messageProducer;
+    /**
+     * The {@link CommandsRouting} that defines the topic through which control commands are broadcast.
+     */
+    @Autowired
+    private CommandsRouting commandsRouting;
+    /**
+     * The topic through which replies are sent.
+     */
+    @Value("${command-handler.response-handler.default-reply-channel}")
+    private String replyChannel;
+    /**
+     * The base working directory of the runner.
+     */
+    @Value("${code-runner.base-working-directory}")
+    private String baseWorkingDirectory;
+
+    /**
+     * The {@link MessageBuilderFactory} used to build the commands (whose payloads are built as maps).
+     */
+    private MessageBuilderFactory<Map<String, Object>> messageBuilderFactory;
+    /**
+     * The replies not received yet, by the id of the request being replied.
+     */
+    private Map<String, CompletableFuture<String>> pendingReplies;
+    /**
+     * The {@link ExecutorService} that receives the replies.
+     */
+    private ExecutorService replyReceiver;
+    /**
+     * The {@link ScheduledExecutorService} used to cancel executions.
+     */
+    private ScheduledExecutorService canceller;
+    /**
+     * The {@link ResourceUsageTrend} that samples the resources usage during the soak.
+     */
+    private ResourceUsageTrend trend;
+
+
+    @Before
+    public void setUp() throws InterruptedException {
+        @SuppressWarnings("unchecked") final var payloadClass = (Class<Map<String, Object>>) (Class<?>) Map.class;
+        messageBuilderFactory = new GenericMessageBuilderFactory<>(
+                "ExecutorServiceSoak",
+                new JacksonJsonPayloadSerializer<>(new ObjectMapper(), payloadClass),
+                JacksonMessage::new
+        );
+        pendingReplies = new ConcurrentHashMap<>();
+        replyReceiver = Executors.newSingleThreadExecutor();
+        final var replies = replyConsumer();
+        replyReceiver.execute(() -> receiveReplies(replies));
+        canceller = Executors.newSingleThreadScheduledExecutor();
+        trend = new ResourceUsageTrend(
+                baseWorkingDirectory,
+                Long.getLong("soak.sample-interval", 10_000),
+                Integer.getInteger("soak.window-size", 6),
+                0
+        );
+        awaitAssignment();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        trend.stop();
+        canceller.shutdownNow();
+        replyReceiver.shutdownNow();
+        replyReceiver.awaitTermination(SETTLE_TIME, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Sends the mix of requests for the configured duration, and checks that all of them were replied with the
+     * expected outcome, that the baselines of the resources did not keep growing (sampling them after a warm-up),
+     * and that no process or working directory is left behind.
+     */
+    @Test
+    public void resourcesDoNotGrowUnderMixedLoad() throws InterruptedException {
+        final var duration = Long.getLong("soak.duration", 600_000);
+        final var concurrency = Integer.getInteger("soak.concurrency", 4);
+        final var maxGrowingWindows = Integer.getInteger("soak.max-growing-windows", 5);
+        final var warmUp = Math.min(duration / 10, 60_000);
+
+        final var outcomes = new ConcurrentHashMap<Kind, AtomicLong>();
+        final var failures = new ConcurrentLinkedQueue<Throwable>();
+        run(warmUp, concurrency, outcomes, failures);
+        LOGGER.info("Usage after warm-up: {}", trend.current());
+        outcomes.clear();
+        trend.start();
+        run(duration - warmUp, concurrency, outcomes, failures);
+        trend.stop();
+        settle();
+        final var usage = trend.current();
+        LOGGER.info("Usage after soak: {}. Outcomes: {}", usage, outcomes);
+
+        Assert.assertTrue("Unexpected failures: " + failures, failures.isEmpty());
+        for (final var kind : Kind.values()) {
+            Assert.assertTrue("No " + kind + " request was sent", outcomes.containsKey(kind));
+        }
+        trend.assertNotGrowing(maxGrowingWindows);
+        Assert.assertEquals("Processes were left behind", 0, usage.get("child-processes"), 0);
+        Assert.assertEquals("Working directories were left behind", 0, usage.get("working-directories"), 0);
+    }
+
+
+    /**
+     * Sends the mix of requests with the given {@code concurrency}, for the given {@code duration}.
+     *
+     * @param duration    How long (in milliseconds) requests are sent.
+     * @param concurrency How many requests are in flight at the same time.
+     * @param outcomes    The amount of requests of each {@link Kind} (that had the expected outcome).
+     * @param failures    The unexpected failures.
+     * @throws InterruptedException If interrupted while waiting for the requests to be replied.
+     */
+    private void run(
+            final long duration,
+            final int concurrency,
+            final Map<Kind, AtomicLong> outcomes,
+            final Queue<Throwable> failures) throws InterruptedException {
+        final var end = System.currentTimeMillis() + duration;
+        final var pool = Executors.newFixedThreadPool(concurrency);
+        for (int worker = 0; worker < concurrency; worker++) {
+            final var offset = worker;
+            pool.execute(() -> {
+                for (long i = offset; System.currentTimeMillis() < end; i++) {
+                    try {
+                        final var kind = Kind.values()[(int) (i % Kind.values().length)];
+                        send(kind);
+                        outcomes.computeIfAbsent(kind, ignored -> new AtomicLong()).incrementAndGet();
+                    } catch (final Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        final var finished = pool.awaitTermination(duration + REPLY_TIMEOUT + SETTLE_TIME, TimeUnit.MILLISECONDS);
+        Assert.assertTrue("The requests were not replied", finished);
+    }
+
+    /**
+     * Sends a request of the given {@code kind}, and checks that it is replied with the expected outcome.
+     *
+     * @param kind The {@link Kind} of request.
+     * @throws Exception If the reply is not received.
+     */
+    private void send(final Kind kind) throws Exception {
+        final String code;
+        final long timeout;
+        switch (kind) {
+            case COMPLETED:
+                code = ECHO_PROGRAM;
+                timeout = LONG_TIMEOUT;
+                break;
+            case COMPILE_ERROR:
+                code = COMPILE_ERROR_PROGRAM;
+                timeout = LONG_TIMEOUT;
+                break;
+            case FAILED:
+                code = FAILING_PROGRAM;
+                timeout = LONG_TIMEOUT;
+                break;
+            case SEGFAULT:
+                code = SEGFAULT_PROGRAM;
+                timeout = LONG_TIMEOUT;
+                break;
+            case ABORT:
+                code = ABORT_PROGRAM;
+                timeout = LONG_TIMEOUT;
+                break;
+            case LARGE_OUTPUT:
+                code = LARGE_OUTPUT_PROGRAM;
+                timeout = LONG_TIMEOUT;
+                break;
+            case TIMEOUT:
+                code = ENDLESS_PROGRAM;
+                timeout = SHORT_TIMEOUT;
+                break;
+            case CANCELLED:
+                code = ENDLESS_PROGRAM;
+                timeout = LONG_TIMEOUT;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+        final var request = messageBuilderFactory.commandMessage("requestExecution")
+                .withPayload(requestPayload(code, timeout))
+                .build();
+        final var reply = new CompletableFuture<String>();
+        pendingReplies.put(request.getId(), reply);
+        try {
+            messageProducer.send(request, Constants.EXECUTOR_SERVICE_COMMANDS_CHANNEL);
+            if (kind == Kind.CANCELLED) {
+                canceller.schedule(() -> cancel(request.getId()), CANCEL_DELAY, TimeUnit.MILLISECONDS);
+            }
+            final var received = reply.get(timeout + REPLY_TIMEOUT, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(
+                    "The " + kind + " request was not replied with " + kind.expected + ": " + abbreviate(received),
+                    received.contains(kind.expected)
+            );
+        } finally {
+            pendingReplies.remove(request.getId());
+        }
+    }
+
+    /**
+     * Broadcasts the cancellation of the request with the given {@code id} through the control topic.
+     *
+     * @param id The id of the request to be cancelled.
+     */
+    private void cancel(final String id) {
+        final var cancellation = messageBuilderFactory.commandMessage("cancelExecution")
+                .withPayload(Map.<String, Object>of("executionId", id))
+                .build();
+        messageProducer.send(cancellation, commandsRouting.getControlTopic());
+    }
+
+    /**
+     * Receives the replies, completing the corresponding pending reply
+     * (i.e the one of the request whose id is included in the reply).
+     *
+     * @param consumer The {@link Consumer} of the replies topic.
+     */
+    private void receiveReplies(final Consumer<String, String> consumer) {
+        try (consumer) {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (final var record : consumer.poll(Duration.ofMillis(100))) {
+                    pendingReplies.forEach((id, reply) -> {
+                        if (record.value().contains(id)) {
+                            reply.complete(record.value());
+                        }
+                    });
+                }
+            }
+        } catch (final InterruptException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Creates the {@link Consumer} of the replies topic (with raw values, as only their content is checked).
+     *
+     * @return The created {@link Consumer}, already subscribed and assigned.
+     */
+    private Consumer<String, String> replyConsumer() {
+        final var properties = KafkaTestUtils.consumerProps("soak-replies", "false", embeddedKafka);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        final var consumer = new KafkaConsumer<String, String>(properties);
+        embeddedKafka.consumeFromAnEmbeddedTopic(consumer, replyChannel);
+        return consumer;
+    }
+
+    /**
+     * Waits till the listeners of the commands (including the control one) are assigned their partitions,
+     * so no command sent by the soak is missed.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private void awaitAssignment() throws InterruptedException {
+        final var end = System.currentTimeMillis() + ASSIGNMENT_TIMEOUT;
+        for (final var container : listenerEndpointRegistry.getListenerContainers()) {
+            while (Optional.ofNullable(container.getAssignedPartitions()).map(Collection::isEmpty).orElse(true)) {
+                Assert.assertTrue("The listeners were not assigned partitions", System.currentTimeMillis() < end);
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    /**
+     * Waits (up to the {@link #SETTLE_TIME}) till the last processes are reaped.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private void settle() throws InterruptedException {
+        final var end = System.currentTimeMillis() + SETTLE_TIME;
+        while (System.currentTimeMillis() < end && ProcessHandle.current().descendants().count() > 0) {
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * Creates the payload of an execution request of C code
+     * (i.e the JSON representation of an {@link ar.edu.itba.cep.executor.dtos.ExecutionRequestDto}).
+     *
+     * @param code    The code to be run.
+     * @param timeout The timeout (in milliseconds) given to the program.
+     * @return The created payload.
+     */
+    private static Map<String, Object> requestPayload(final String code, final long timeout) {
+        final var payload = new HashMap<String, Object>();
+        payload.put("code", code);
+        payload.put("programArguments", Collections.emptyList());
+        payload.put("stdin", INPUT);
+        payload.put("compilerFlags", "");
+        payload.put("timeout", timeout);
+        payload.put("mainFileName", "main.c");
+        payload.put("language", Language.C.name());
+        return payload;
+    }
+
+    /**
+     * Abbreviates the given {@code reply} (e.g those with a large output), to be included in failure messages.
+     *
+     * @param reply The reply.
+     * @return The abbreviated reply.
+     */
+    private static String abbreviate(final String reply) {
+        return reply.length() <= 1000 ? reply : reply.substring(0, 1000) + "...";
+    }
+
+
+    /**
+     * The kinds of requests that are sent (each of them with an expected outcome).
+     */
+    private enum Kind {
+        /**
+         * A program that echoes its standard input, and completes.
+         */
+        COMPLETED("COMPLETED"),
+        /**
+         * A program that does not compile.
+         */
+        COMPILE_ERROR("COMPILE_ERROR"),
+        /**
+         * A program that exits with an error code.
+         */
+        FAILED("UNKNOWN_ERROR"),
+        /**
+         * A program that crashes with a segmentation fault.
+         */
+        SEGFAULT("UNKNOWN_ERROR"),
+        /**
+         * A program that crashes by aborting.
+         */
+        ABORT("UNKNOWN_ERROR"),
+        /**
+         * A program that prints a large standard output, and completes.
+         */
+        LARGE_OUTPUT("COMPLETED"),
+        /**
+         * A program that never finishes, and times out.
+         */
+        TIMEOUT("TIMEOUT"),
+        /**
+         * A program that never finishes, and is cancelled through the control topic.
+         */
+        CANCELLED("cancelled");
+
+        /**
+         * Text that the reply must include (i.e the result, or the execution status for aborted executions).
+         */
+        private final String expected;
+
+
+        /**
+         * Constructor.
+         *
+         * @param expected Text that the reply must include.
+         */
+        Kind(final String expected) {
+            this.expected = expected;
+        }
+    }
+}
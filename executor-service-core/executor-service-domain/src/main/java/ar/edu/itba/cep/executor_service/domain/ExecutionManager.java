@@ -3,11 +3,18 @@ package ar.edu.itba.cep.executor_service.domain;
 
 import ar.edu.itba.cep.executor.models.ExecutionRequest;
 import ar.edu.itba.cep.executor.models.ExecutionResponse;
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancelledException;
+import ar.edu.itba.cep.executor_service.models.ExecutionContext;
+import ar.edu.itba.cep.executor_service.models.ExecutionExpiredException;
+import ar.edu.itba.cep.executor_service.models.UnknownInputException;
 import ar.edu.itba.cep.executor_service.runner.CodeRunner;
 import ar.edu.itba.cep.executor_service.services.ExecutorService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Set;
+
 /**
  * A manager in charge of processing {@link ExecutionRequest}s.
  */
@@ -27,8 +34,16 @@ public class ExecutionManager implements ExecutorService {
 
 
     @Override
-    public ExecutionResponse processExecutionRequest(final ExecutionRequest executionRequest)
-            throws IllegalArgumentException {
-        return codeRunner.processExecutionRequest(executionRequest);
+    public ExecutionResponse processExecutionRequest(
+            final ExecutionRequest executionRequest,
+            final ExecutionContext executionContext)
+            throws IllegalArgumentException, UnknownInputException,
+                    ExecutionCancelledException, ExecutionExpiredException {
+        return codeRunner.processExecutionRequest(executionRequest, executionContext);
+    }
+
+    @Override
+    public Set<Language> getSupportedLanguages() {
+        return codeRunner.getSupportedLanguages();
     }
 }
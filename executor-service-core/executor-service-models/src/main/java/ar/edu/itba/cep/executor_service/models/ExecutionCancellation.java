@@ -0,0 +1,89 @@
+package ar.edu.itba.cep.executor_service.models;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Allows cancelling an execution (e.g because its result will not be read anymore).
+ * Components performing the execution can check whether it was cancelled,
+ * or register listeners to be notified when it is cancelled (e.g to stop waiting, or to kill processes).
+ */
+public final class ExecutionCancellation {
+
+    /**
+     * Listeners to be notified when the execution is cancelled.
+     */
+    private final List<Runnable> listeners;
+    /**
+     * Indicates whether the execution has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+
+    /**
+     * Constructor.
+     */
+    public ExecutionCancellation() {
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.cancelled = false;
+    }
+
+
+    /**
+     * @return {@code true} if the execution has been cancelled, or {@code false} otherwise.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancels the execution, notifying the registered listeners. Does nothing if it was already cancelled.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Registers a {@code listener} to be notified when the execution is cancelled.
+     * If the execution was already cancelled, the listener is notified immediately.
+     *
+     * @param listener The listener to be notified.
+     * @return A {@link Registration} that must be closed once the listener must not be notified anymore.
+     */
+    public Registration onCancel(final Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return () -> listeners.remove(listener);
+            }
+        }
+        listener.run();
+        return Registration.NONE;
+    }
+
+
+    /**
+     * The registration of a listener.
+     */
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+
+        /**
+         * A {@link Registration} that does nothing (e.g to be used when there is nothing to be registered).
+         */
+        Registration NONE = () -> {
+        };
+
+        /**
+         * Removes the listener.
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,16 @@
+package ar.edu.itba.cep.executor_service.models;
+
+/**
+ * Exception to be thrown when an execution is aborted because it was cancelled.
+ */
+public class ExecutionCancelledException extends RuntimeException {
+
+    /**
+     * Constructor.
+     *
+     * @param message The exception message.
+     */
+    public ExecutionCancelledException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,160 @@
+package ar.edu.itba.cep.executor_service.models;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Holds data about an {@link ar.edu.itba.cep.executor.models.ExecutionRequest} that is not part of the request itself
+ * (e.g data taken from the transport that carried it), and that is needed to process it.
+ * Instances are immutable.
+ */
+public final class ExecutionContext {
+
+    /**
+     * An {@link ExecutionContext} without any data.
+     */
+    private static final ExecutionContext EMPTY = new ExecutionContext(null, null, null, null);
+
+
+    /**
+     * The digest of the standard input referenced by the request (see {@link StdinDigests}),
+     * or {@code null} if the request does not reference one.
+     */
+    private final String stdinDigest;
+    /**
+     * The {@link StdinStorage} to which the storage of the standard input is reported,
+     * or {@code null} if it must not be stored.
+     */
+    private final StdinStorage stdinStorage;
+    /**
+     * The {@link ExecutionCancellation} that allows cancelling the execution,
+     * or {@code null} if it cannot be cancelled.
+     */
+    private final ExecutionCancellation cancellation;
+    /**
+     * The instant after which the result of the execution will not be read anymore,
+     * or {@code null} if there is no such instant.
+     */
+    private final Instant deadline;
+
+
+    /**
+     * Constructor.
+     *
+     * @param stdinDigest  The digest of the standard input referenced by the request,
+     *                     or {@code null} if the request does not reference one.
+     * @param stdinStorage The {@link StdinStorage} to which the storage of the standard input is reported,
+     *                     or {@code null} if it must not be stored.
+     * @param cancellation The {@link ExecutionCancellation} that allows cancelling the execution,
+     *                     or {@code null} if it cannot be cancelled.
+     * @param deadline     The instant after which the result of the execution will not be read anymore,
+     *                     or {@code null} if there is no such instant.
+     */
+    private ExecutionContext(
+            final String stdinDigest,
+            final StdinStorage stdinStorage,
+            final ExecutionCancellation cancellation,
+            final Instant deadline) {
+        this.stdinDigest = stdinDigest;
+        this.stdinStorage = stdinStorage;
+        this.cancellation = cancellation;
+        this.deadline = deadline;
+    }
+
+
+    /**
+     * @return An {@link ExecutionContext} without any data.
+     */
+    public static ExecutionContext empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the digest of the standard input referenced by the request (i.e a standard input sent in a previous
+     * request, which the request does not include).
+     *
+     * @return An {@link Optional} holding the digest of the referenced standard input,
+     * or empty if the request does not reference one.
+     */
+    public Optional<String> getStdinDigest() {
+        return Optional.ofNullable(stdinDigest);
+    }
+
+    /**
+     * @return An {@link Optional} holding the {@link StdinStorage} to which the storage of the standard input
+     * is reported, or empty if it must not be stored.
+     */
+    public Optional<StdinStorage> getStdinStorage() {
+        return Optional.ofNullable(stdinStorage);
+    }
+
+    /**
+     * @return An {@link Optional} holding the {@link ExecutionCancellation} that allows cancelling the execution,
+     * or empty if it cannot be cancelled.
+     */
+    public Optional<ExecutionCancellation> getCancellation() {
+        return Optional.ofNullable(cancellation);
+    }
+
+    /**
+     * @return {@code true} if the execution has been cancelled, or {@code false} otherwise.
+     */
+    public boolean isCancelled() {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /**
+     * @return An {@link Optional} holding the instant after which the result of the execution
+     * will not be read anymore, or empty if there is no such instant.
+     */
+    public Optional<Instant> getDeadline() {
+        return Optional.ofNullable(deadline);
+    }
+
+    /**
+     * @return {@code true} if the deadline of the execution has passed, or {@code false} otherwise.
+     */
+    public boolean isExpired() {
+        return deadline != null && !Instant.now().isBefore(deadline);
+    }
+
+    /**
+     * Creates a copy of this {@link ExecutionContext} with the given {@code stdinDigest}.
+     *
+     * @param stdinDigest The digest of the standard input referenced by the request.
+     * @return The new {@link ExecutionContext}.
+     */
+    public ExecutionContext withStdinDigest(final String stdinDigest) {
+        return new ExecutionContext(stdinDigest, stdinStorage, cancellation, deadline);
+    }
+
+    /**
+     * Creates a copy of this {@link ExecutionContext} with the given {@code stdinStorage}.
+     *
+     * @param stdinStorage The {@link StdinStorage} to which the storage of the standard input is reported.
+     * @return The new {@link ExecutionContext}.
+     */
+    public ExecutionContext withStdinStorage(final StdinStorage stdinStorage) {
+        return new ExecutionContext(stdinDigest, stdinStorage, cancellation, deadline);
+    }
+
+    /**
+     * Creates a copy of this {@link ExecutionContext} with the given {@code cancellation}.
+     *
+     * @param cancellation The {@link ExecutionCancellation} that allows cancelling the execution.
+     * @return The new {@link ExecutionContext}.
+     */
+    public ExecutionContext withCancellation(final ExecutionCancellation cancellation) {
+        return new ExecutionContext(stdinDigest, stdinStorage, cancellation, deadline);
+    }
+
+    /**
+     * Creates a copy of this {@link ExecutionContext} with the given {@code deadline}.
+     *
+     * @param deadline The instant after which the result of the execution will not be read anymore.
+     * @return The new {@link ExecutionContext}.
+     */
+    public ExecutionContext withDeadline(final Instant deadline) {
+        return new ExecutionContext(stdinDigest, stdinStorage, cancellation, deadline);
+    }
+}
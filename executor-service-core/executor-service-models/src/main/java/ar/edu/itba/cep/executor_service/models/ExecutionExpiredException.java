@@ -0,0 +1,35 @@
+package ar.edu.itba.cep.executor_service.models;
+
+/**
+ * Exception to be thrown when an execution is not performed because its deadline has passed,
+ * or because it cannot be met (i.e its result would not be read anymore).
+ */
+public class ExecutionExpiredException extends RuntimeException {
+
+    /**
+     * Indicates whether the deadline had passed, or whether it was estimated that it could not be met.
+     */
+    private final boolean deadlinePassed;
+
+
+    /**
+     * Constructor.
+     *
+     * @param message        The exception message.
+     * @param deadlinePassed Indicates whether the deadline had passed,
+     *                       or whether it was estimated that it could not be met.
+     */
+    public ExecutionExpiredException(final String message, final boolean deadlinePassed) {
+        super(message);
+        this.deadlinePassed = deadlinePassed;
+    }
+
+
+    /**
+     * @return {@code true} if the deadline had passed,
+     * or {@code false} if it was estimated that it could not be met.
+     */
+    public boolean isDeadlinePassed() {
+        return deadlinePassed;
+    }
+}
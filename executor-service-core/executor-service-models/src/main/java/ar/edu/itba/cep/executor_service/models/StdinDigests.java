@@ -0,0 +1,80 @@
+package ar.edu.itba.cep.executor_service.models;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Helper class to compute digests of standard inputs, which are used to reference them.
+ * The digest is the hex encoded SHA-256 hash of the input lines, each of them terminated with a line feed,
+ * encoded in UTF-8.
+ */
+public final class StdinDigests {
+
+    /**
+     * The algorithm used to compute digests.
+     */
+    private static final String ALGORITHM = "SHA-256";
+    /**
+     * {@link Pattern} that matches valid digests.
+     */
+    private static final Pattern DIGEST_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    /**
+     * Digits used to hex encode digests.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private StdinDigests() {
+    }
+
+
+    /**
+     * Computes the digest of the given {@code lines}.
+     *
+     * @param lines The lines of the standard input.
+     * @return The digest.
+     */
+    public static String digest(final List<String> lines) {
+        final var messageDigest = newMessageDigest();
+        for (final var line : lines) {
+            messageDigest.update(line.getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) '\n');
+        }
+        final var hash = messageDigest.digest();
+        final var hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Indicates whether the given {@code digest} is a valid digest
+     * (i.e it could have been returned by {@link #digest(List)}).
+     *
+     * @param digest The digest to be checked.
+     * @return {@code true} if the digest is valid, or {@code false} otherwise.
+     */
+    public static boolean isValid(final String digest) {
+        return digest != null && DIGEST_PATTERN.matcher(digest).matches();
+    }
+
+
+    /**
+     * @return A new {@link MessageDigest} for the {@link #ALGORITHM}.
+     */
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 must be supported by every Java platform", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ar.edu.itba.cep.executor_service.models;
+
+import java.util.Optional;
+
+/**
+ * Keeps track of whether the standard input of an execution is stored (and under which digest, see
+ * {@link StdinDigests}), so it can be referenced by later requests.
+ * Components performing the execution report it once the input is actually stored
+ * (or found in the store, if the request referenced it), and the requester is only told the digest in that case.
+ */
+public final class StdinStorage {
+
+    /**
+     * The digest under which the standard input is stored, or {@code null} if it is not stored.
+     */
+    private volatile String digest;
+
+
+    /**
+     * Constructor.
+     */
+    public StdinStorage() {
+        this.digest = null;
+    }
+
+
+    /**
+     * @return An {@link Optional} holding the digest under which the standard input is stored,
+     * or empty if it is not stored.
+     */
+    public Optional<String> getDigest() {
+        return Optional.ofNullable(digest);
+    }
+
+    /**
+     * Reports that the standard input is stored under the given {@code digest}.
+     *
+     * @param digest The digest under which the standard input is stored.
+     */
+    public void stored(final String digest) {
+        this.digest = digest;
+    }
+}
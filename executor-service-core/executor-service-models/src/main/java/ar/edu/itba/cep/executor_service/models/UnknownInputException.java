@@ -0,0 +1,32 @@
+package ar.edu.itba.cep.executor_service.models;
+
+/**
+ * Exception to be thrown when an execution references an input (e.g its standard input) that is not known
+ * (i.e it was never received, or it was evicted). The requester must resend the execution with the input inline.
+ */
+public class UnknownInputException extends RuntimeException {
+
+    /**
+     * The digest of the unknown input.
+     */
+    private final String digest;
+
+
+    /**
+     * Constructor.
+     *
+     * @param digest The digest of the unknown input.
+     */
+    public UnknownInputException(final String digest) {
+        super("Unknown input: " + digest);
+        this.digest = digest;
+    }
+
+
+    /**
+     * @return The digest of the unknown input.
+     */
+    public String getDigest() {
+        return digest;
+    }
+}
@@ -2,6 +2,13 @@ package ar.edu.itba.cep.executor_service.runner;
 
 import ar.edu.itba.cep.executor.models.ExecutionRequest;
 import ar.edu.itba.cep.executor.models.ExecutionResponse;
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancelledException;
+import ar.edu.itba.cep.executor_service.models.ExecutionContext;
+import ar.edu.itba.cep.executor_service.models.ExecutionExpiredException;
+import ar.edu.itba.cep.executor_service.models.UnknownInputException;
+
+import java.util.Set;
 
 /**
  * A port out of the application that allows processing an {@link ExecutionRequest} (i.e run code).
@@ -15,6 +22,30 @@ public interface CodeRunner {
      * @return The {@link ExecutionResponse}.
      * @throws IllegalArgumentException if the given {@code executionRequest} is {@code null}.
      */
-    ExecutionResponse processExecutionRequest(final ExecutionRequest executionRequest)
-            throws IllegalArgumentException;
+    default ExecutionResponse processExecutionRequest(final ExecutionRequest executionRequest)
+            throws IllegalArgumentException {
+        return processExecutionRequest(executionRequest, ExecutionContext.empty());
+    }
+
+    /**
+     * Processes the given {@code executionRequest}, using the given {@code executionContext}.
+     *
+     * @param executionRequest The {@link ExecutionRequest} to be processed.
+     * @param executionContext The {@link ExecutionContext} of the request.
+     * @return The {@link ExecutionResponse}.
+     * @throws IllegalArgumentException    if the given {@code executionRequest} is {@code null}.
+     * @throws UnknownInputException       If the request references an input that is not known.
+     * @throws ExecutionCancelledException If the execution is cancelled.
+     * @throws ExecutionExpiredException   If the deadline of the execution has passed, or it cannot be met.
+     */
+    ExecutionResponse processExecutionRequest(
+            final ExecutionRequest executionRequest,
+            final ExecutionContext executionContext)
+            throws IllegalArgumentException, UnknownInputException,
+                    ExecutionCancelledException, ExecutionExpiredException;
+
+    /**
+     * @return The {@link Language}s this runner can run code of.
+     */
+    Set<Language> getSupportedLanguages();
 }
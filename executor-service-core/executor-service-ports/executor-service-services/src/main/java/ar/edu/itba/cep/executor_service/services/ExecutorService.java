@@ -2,6 +2,13 @@ package ar.edu.itba.cep.executor_service.services;
 
 import ar.edu.itba.cep.executor.models.ExecutionRequest;
 import ar.edu.itba.cep.executor.models.ExecutionResponse;
+import ar.edu.itba.cep.executor.models.Language;
+import ar.edu.itba.cep.executor_service.models.ExecutionCancelledException;
+import ar.edu.itba.cep.executor_service.models.ExecutionContext;
+import ar.edu.itba.cep.executor_service.models.ExecutionExpiredException;
+import ar.edu.itba.cep.executor_service.models.UnknownInputException;
+
+import java.util.Set;
 
 /**
  * A port into the application that allows requesting an execution.
@@ -15,5 +22,30 @@ public interface ExecutorService {
      * @return The {@link ExecutionResponse} that came up of after processing the given {@code executionRequest}.
      * @throws IllegalArgumentException If the given {@code executionRequest} is invalid.
      */
-    ExecutionResponse processExecutionRequest(final ExecutionRequest executionRequest) throws IllegalArgumentException;
+    default ExecutionResponse processExecutionRequest(final ExecutionRequest executionRequest)
+            throws IllegalArgumentException {
+        return processExecutionRequest(executionRequest, ExecutionContext.empty());
+    }
+
+    /**
+     * Processes the given {@code executionRequest}, using the given {@code executionContext}.
+     *
+     * @param executionRequest The {@link ExecutionRequest} to be processed.
+     * @param executionContext The {@link ExecutionContext} of the request.
+     * @return The {@link ExecutionResponse} that came up of after processing the given {@code executionRequest}.
+     * @throws IllegalArgumentException    If the given {@code executionRequest} is invalid.
+     * @throws UnknownInputException       If the request references an input that is not known.
+     * @throws ExecutionCancelledException If the execution is cancelled.
+     * @throws ExecutionExpiredException   If the deadline of the execution has passed, or it cannot be met.
+     */
+    ExecutionResponse processExecutionRequest(
+            final ExecutionRequest executionRequest,
+            final ExecutionContext executionContext)
+            throws IllegalArgumentException, UnknownInputException,
+                    ExecutionCancelledException, ExecutionExpiredException;
+
+    /**
+     * @return The {@link Language}s whose {@link ExecutionRequest}s can be processed.
+     */
+    Set<Language> getSupportedLanguages();
 }